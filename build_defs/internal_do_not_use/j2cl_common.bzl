@@ -175,7 +175,10 @@ def _strip_gwt_incompatible(ctx, name, java_srcs):
         executable = ctx.executable._j2cl_stripper,
         arguments = [args],
         env = dict(LANG = "en_US.UTF-8"),
-        execution_requirements = {"supports-workers": "1"},
+        execution_requirements = {
+            "supports-multiplex-workers": "1",
+            "supports-workers": "1",
+        },
         mnemonic = "J2cl",
     )
 
@@ -217,7 +220,10 @@ def _j2cl_transpile(
         executable = ctx.executable._j2cl_transpiler,
         arguments = [args],
         env = dict(LANG = "en_US.UTF-8"),
-        execution_requirements = {"supports-workers": "1"},
+        execution_requirements = {
+            "supports-multiplex-workers": "1",
+            "supports-workers": "1",
+        },
         mnemonic = "J2cl",
     )
 
@@ -86,6 +86,34 @@ def setup_j2cl_workspace():
         licenses = ["notice"],
     )
 
+    jvm_maven_import_external(
+        name = "org_openjdk_jmh_core",
+        artifact = "org.openjdk.jmh:jmh-core:1.23",
+        server_urls = _MAVEN_CENTRAL_URLS,
+        licenses = ["notice"],
+    )
+
+    jvm_maven_import_external(
+        name = "org_openjdk_jmh_generator_annprocess",
+        artifact = "org.openjdk.jmh:jmh-generator-annprocess:1.23",
+        server_urls = _MAVEN_CENTRAL_URLS,
+        licenses = ["notice"],
+    )
+
+    jvm_maven_import_external(
+        name = "net_sf_jopt_simple",
+        artifact = "net.sf.jopt-simple:jopt-simple:4.6",
+        server_urls = _MAVEN_CENTRAL_URLS,
+        licenses = ["notice"],
+    )
+
+    jvm_maven_import_external(
+        name = "org_apache_commons_math3",
+        artifact = "org.apache.commons:commons-math3:3.2",
+        server_urls = _MAVEN_CENTRAL_URLS,
+        licenses = ["notice"],
+    )
+
     jvm_maven_import_external(
         name = "org_mockito",
         artifact = "org.mockito:mockito-all:1.9.5",
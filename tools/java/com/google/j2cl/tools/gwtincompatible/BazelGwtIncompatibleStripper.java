@@ -16,6 +16,7 @@
 package com.google.j2cl.tools.gwtincompatible;
 
 import com.google.j2cl.bazel.BazelWorker;
+import com.google.j2cl.common.Output;
 import com.google.j2cl.common.Problems;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,9 +35,25 @@ public class BazelGwtIncompatibleStripper extends BazelWorker {
       usage = "The location into which to place output srcjar.")
   protected String outputPath;
 
+  @Option(
+      name = "-uncompressedoutput",
+      usage =
+          "Stores the files in the output srcjar without compression, which is faster to write and"
+              + " to read when the output is consumed right away.",
+      hidden = true)
+  protected boolean uncompressedOutput = false;
+
   @Override
   protected Problems run() {
-    return GwtIncompatibleStripper.strip(files, outputPath);
+    long startNanos = System.nanoTime();
+    Problems problems =
+        GwtIncompatibleStripper.strip(
+            files,
+            outputPath,
+            uncompressedOutput ? Output.Compression.STORED : Output.Compression.DEFLATED);
+    recordTime("strip", System.nanoTime() - startNanos);
+    recordCount("files", files.size());
+    return problems;
   }
 
   public static void main(String[] workerArgs) throws Exception {
@@ -16,6 +16,7 @@ package com.google.j2cl.tools.gwtincompatible;
 import static com.google.j2cl.common.FrontendUtils.checkSourceFiles;
 
 import com.google.j2cl.common.CommandLineTool;
+import com.google.j2cl.common.Output;
 import com.google.j2cl.common.Problems;
 import java.util.ArrayList;
 import java.util.List;
@@ -41,7 +42,7 @@ final class GwtIncompatibleStripperCommandLineRunner extends CommandLineTool {
   @Override
   protected Problems run() {
     checkSourceFiles(files, ".java", ".srcjar", "-src.jar");
-    return GwtIncompatibleStripper.strip(files, outputPath);
+    return GwtIncompatibleStripper.strip(files, outputPath, Output.Compression.DEFLATED);
   }
 
   public static void main(String[] args) {
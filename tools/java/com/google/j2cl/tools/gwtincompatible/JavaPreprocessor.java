@@ -19,16 +19,12 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
-import com.google.common.io.MoreFiles;
 import com.google.j2cl.common.FrontendUtils.FileInfo;
-import com.google.j2cl.common.J2clUtils;
+import com.google.j2cl.common.Output;
 import com.google.j2cl.common.Problems;
 import com.google.j2cl.common.Problems.FatalError;
 import com.google.j2cl.frontend.jdt.GwtIncompatibleNodeCollector;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,12 +41,11 @@ import org.eclipse.jdt.core.dom.ImportDeclaration;
  */
 public class JavaPreprocessor {
   /** Preprocess all provided files and put them to provided output path. */
-  public static void preprocessFiles(List<FileInfo> fileInfos, Path output, Problems problems) {
+  public static void preprocessFiles(List<FileInfo> fileInfos, Output output, Problems problems) {
     for (FileInfo fileInfo : fileInfos) {
       String processedFileContent;
       try {
-        String fileContent =
-            MoreFiles.asCharSource(Paths.get(fileInfo.sourcePath()), StandardCharsets.UTF_8).read();
+        String fileContent = fileInfo.asCharSource().read();
         processedFileContent = processFile(fileContent);
       } catch (IOException e) {
         problems.fatal(FatalError.CANNOT_OPEN_FILE, e.toString());
@@ -58,8 +53,7 @@ public class JavaPreprocessor {
       }
 
       // Write the processed file to output
-      J2clUtils.writeToFile(
-          output.resolve(fileInfo.originalPath()), processedFileContent, problems);
+      output.write(fileInfo.originalPath(), processedFileContent);
     }
   }
 
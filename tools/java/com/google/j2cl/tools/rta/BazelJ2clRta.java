@@ -41,6 +41,10 @@ public class BazelJ2clRta extends BazelWorker {
   private static final FileCache<LibraryInfo> libraryInfoCache =
       new FileCache<>(BazelJ2clRta::readLibraryInfo, CACHE_SIZE);
 
+  static {
+    registerCache("libraryInfo", libraryInfoCache::getHitCount, libraryInfoCache::getMissCount);
+  }
+
   @Option(
       name = "--unusedTypesOutput",
       usage = "Path of output file containing the list of unused types",
@@ -58,14 +62,21 @@ public class BazelJ2clRta extends BazelWorker {
 
   @Override
   protected Problems run() {
+    long startNanos = System.nanoTime();
     List<LibraryInfo> libraryInfos =
         inputs.parallelStream().map(libraryInfoCache::get).collect(toImmutableList());
+    long readNanos = System.nanoTime();
 
     RtaResult rtaResult = RapidTypeAnalyser.analyse(libraryInfos);
+    long analyseNanos = System.nanoTime();
 
     writeToFile(unusedTypesOutputFilePath, rtaResult.getUnusedTypes());
     writeToFile(removalCodeInfoOutputFilePath, rtaResult.getCodeRemovalInfo());
 
+    recordTime("read", readNanos - startNanos);
+    recordTime("analyse", analyseNanos - readNanos);
+    recordTime("output", System.nanoTime() - analyseNanos);
+    recordCount("libraryInfos", libraryInfos.size());
     return new Problems();
   }
 
@@ -24,6 +24,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A cache that caches outputs produced from files while minimizing locking.
@@ -39,6 +40,8 @@ final class FileCache<T> {
 
   private final LoadingCache<String, CachedFile> cache;
   private final FileFunction<T> fn;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
 
   public FileCache(FileFunction<T> fn, int cacheSize) {
     this(fn, cacheSize, ForkJoinPool.getCommonPoolParallelism());
@@ -57,6 +60,16 @@ final class FileCache<T> {
     return cache.getUnchecked(path).get();
   }
 
+  /** Returns the number of times the cached output of an unchanged file was returned. */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /** Returns the number of times the output had to be produced from the file. */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
   private class CachedFile {
     private final Path path;
     private volatile FileTime lastModified;
@@ -72,8 +85,11 @@ final class FileCache<T> {
       try {
         FileTime newLastModified = Files.getLastModifiedTime(path);
         if (!newLastModified.equals(lastModified)) {
+          missCount.incrementAndGet();
           cached = fn.apply(path);
           lastModified = newLastModified;
+        } else {
+          hitCount.incrementAndGet();
         }
         return cached;
       } catch (IOException e) {
@@ -18,7 +18,7 @@ package com.google.j2cl.ast;
 import com.google.auto.value.AutoValue;
 import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.base.Strings;
-import com.google.j2cl.common.ThreadLocalInterner;
+import com.google.j2cl.common.ConcurrentInterner;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -202,8 +202,8 @@ public abstract class ArrayTypeDescriptor extends TypeDescriptor {
 
     abstract ArrayTypeDescriptor autoBuild();
 
-    private static final ThreadLocalInterner<ArrayTypeDescriptor> interner =
-        new ThreadLocalInterner<>();
+    private static final ConcurrentInterner<ArrayTypeDescriptor> interner =
+        new ConcurrentInterner<>("ArrayTypeDescriptor");
 
     public ArrayTypeDescriptor build() {
       ArrayTypeDescriptor typeDescriptor = autoBuild();
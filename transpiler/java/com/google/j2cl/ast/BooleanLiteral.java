@@ -17,14 +17,15 @@ package com.google.j2cl.ast;
 
 import com.google.j2cl.ast.annotations.Visitable;
 import com.google.j2cl.ast.processors.common.Processor;
+import com.google.j2cl.common.CompilationContext.ContextLocal;
 
 /** Boolean literal node. */
 @Visitable
 public class BooleanLiteral extends Literal {
-  private static final ThreadLocal<BooleanLiteral> FALSE =
-      ThreadLocal.withInitial(() -> new BooleanLiteral(false));
-  private static final ThreadLocal<BooleanLiteral> TRUE =
-      ThreadLocal.withInitial(() -> new BooleanLiteral(true));
+  private static final ContextLocal<BooleanLiteral> FALSE =
+      ContextLocal.withInitial(() -> new BooleanLiteral(false));
+  private static final ContextLocal<BooleanLiteral> TRUE =
+      ContextLocal.withInitial(() -> new BooleanLiteral(true));
   private final boolean value;
 
   private BooleanLiteral(boolean value) {
@@ -30,7 +30,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.MoreCollectors;
 import com.google.j2cl.ast.MethodDescriptor.MethodOrigin;
-import com.google.j2cl.common.ThreadLocalInterner;
+import com.google.j2cl.common.ConcurrentInterner;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -764,8 +764,8 @@ public abstract class DeclaredTypeDescriptor extends TypeDescriptor
 
     public abstract Builder setTypeDeclaration(TypeDeclaration typeDeclaration);
 
-    private static final ThreadLocalInterner<DeclaredTypeDescriptor> interner =
-        new ThreadLocalInterner<>();
+    private static final ConcurrentInterner<DeclaredTypeDescriptor> interner =
+        new ConcurrentInterner<>("DeclaredTypeDescriptor");
 
     abstract DeclaredTypeDescriptor autoBuild();
 
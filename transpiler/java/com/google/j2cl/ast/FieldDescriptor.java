@@ -19,7 +19,7 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.auto.value.AutoValue;
 import com.google.auto.value.extension.memoized.Memoized;
-import com.google.j2cl.common.ThreadLocalInterner;
+import com.google.j2cl.common.ConcurrentInterner;
 import java.util.Optional;
 import javax.annotation.Nullable;
 
@@ -243,7 +243,7 @@ public abstract class FieldDescriptor extends MemberDescriptor {
       return fieldDescriptor.toBuilder();
     }
 
-    private static final ThreadLocalInterner<FieldDescriptor> interner =
-        new ThreadLocalInterner<>();
+    private static final ConcurrentInterner<FieldDescriptor> interner =
+        new ConcurrentInterner<>("FieldDescriptor");
   }
 }
@@ -22,7 +22,7 @@ import com.google.auto.value.AutoValue;
 import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.j2cl.common.ThreadLocalInterner;
+import com.google.j2cl.common.ConcurrentInterner;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -190,8 +190,8 @@ public abstract class IntersectionTypeDescriptor extends TypeDescriptor {
 
     abstract IntersectionTypeDescriptor autoBuild();
 
-    private static final ThreadLocalInterner<IntersectionTypeDescriptor> interner =
-        new ThreadLocalInterner<>();
+    private static final ConcurrentInterner<IntersectionTypeDescriptor> interner =
+        new ConcurrentInterner<>("IntersectionTypeDescriptor");
 
     public IntersectionTypeDescriptor build() {
       IntersectionTypeDescriptor typeDescriptor = autoBuild();
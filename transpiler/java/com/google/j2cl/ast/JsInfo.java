@@ -16,7 +16,7 @@
 package com.google.j2cl.ast;
 
 import com.google.auto.value.AutoValue;
-import com.google.j2cl.common.ThreadLocalInterner;
+import com.google.j2cl.common.ConcurrentInterner;
 import javax.annotation.Nullable;
 
 /**
@@ -91,6 +91,6 @@ public abstract class JsInfo {
       return jsInfo.toBuilder();
     }
 
-    private static final ThreadLocalInterner<JsInfo> interner = new ThreadLocalInterner<>();
+    private static final ConcurrentInterner<JsInfo> interner = new ConcurrentInterner<>("JsInfo");
   }
 }
@@ -53,6 +53,11 @@ public class ManglingNameUtils {
 
   /** Returns the mangled name of a method. */
   public static String getMangledName(MethodDescriptor methodDescriptor) {
+    return methodDescriptor.getMangledName();
+  }
+
+  /** Computes the mangled name of a method, see {@link MethodDescriptor#getMangledName}. */
+  static String computeMangledName(MethodDescriptor methodDescriptor) {
     if (methodDescriptor.isConstructor()) {
       return "constructor";
     }
@@ -26,7 +26,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Streams;
-import com.google.j2cl.common.ThreadLocalInterner;
+import com.google.j2cl.common.ConcurrentInterner;
+import com.google.j2cl.common.SymbolTable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -66,8 +67,8 @@ public abstract class MethodDescriptor extends MemberDescriptor {
           .setDoNotAutobox(false);
     }
 
-    private static final ThreadLocalInterner<ParameterDescriptor> interner =
-        new ThreadLocalInterner<>();
+    private static final ConcurrentInterner<ParameterDescriptor> interner =
+        new ConcurrentInterner<>("ParameterDescriptor");
 
     /** A Builder for ParameterDescriptor. */
     @AutoValue.Builder
@@ -392,8 +393,31 @@ public abstract class MethodDescriptor extends MemberDescriptor {
     return getOrigin().overriddenJsVisibility;
   }
 
+  /** Returns the method signature, interned in the symbol table of the compilation. */
+  @Memoized
   public String getMethodSignature() {
-    return buildMethodSignature(getName(), getParameterTypeDescriptors());
+    return SymbolTable.get().intern(buildMethodSignature(getName(), getParameterTypeDescriptors()));
+  }
+
+  /** Returns the id of the method signature in the symbol table of the compilation. */
+  @Memoized
+  public int getMethodSignatureId() {
+    return SymbolTable.get().getId(getMethodSignature());
+  }
+
+  /**
+   * Returns the name of the method in the JavaScript output, interned in the symbol table of the
+   * compilation.
+   */
+  @Memoized
+  public String getMangledName() {
+    return SymbolTable.get().intern(ManglingNameUtils.computeMangledName(this));
+  }
+
+  /** Returns the id of the mangled name in the symbol table of the compilation. */
+  @Memoized
+  public int getMangledNameId() {
+    return SymbolTable.get().getId(getMangledName());
   }
 
   abstract Builder toBuilder();
@@ -460,9 +484,20 @@ public abstract class MethodDescriptor extends MemberDescriptor {
   /** Returns a signature suitable for override checking from the Java source perspective. */
   @Memoized
   public String getOverrideSignature() {
-    return getParameterTypeDescriptors().stream()
-        .map(MethodDescriptor::getSignatureStringForParameter)
-        .collect(joining(";", getName() + "(", ")"));
+    return SymbolTable.get()
+        .intern(
+            getParameterTypeDescriptors().stream()
+                .map(MethodDescriptor::getSignatureStringForParameter)
+                .collect(joining(";", getName() + "(", ")")));
+  }
+
+  /**
+   * Returns the id of the override signature in the symbol table of the compilation, which is used
+   * to key the override lookups of {@link TypeHierarchyIndex}.
+   */
+  @Memoized
+  public int getOverrideSignatureId() {
+    return SymbolTable.get().getId(getOverrideSignature());
   }
 
   private Set<MethodDescriptor> getOverriddenJsMembers() {
@@ -723,7 +758,7 @@ public abstract class MethodDescriptor extends MemberDescriptor {
       return builder;
     }
 
-    private static final ThreadLocalInterner<MethodDescriptor> interner =
-        new ThreadLocalInterner<>();
+    private static final ConcurrentInterner<MethodDescriptor> interner =
+        new ConcurrentInterner<>("MethodDescriptor");
   }
 }
@@ -17,13 +17,14 @@ package com.google.j2cl.ast;
 
 import com.google.j2cl.ast.annotations.Visitable;
 import com.google.j2cl.ast.processors.common.Processor;
+import com.google.j2cl.common.CompilationContext.ContextLocal;
 
 /** Null literal node. */
 @Visitable
 public class NullLiteral extends Literal {
 
-  private static final ThreadLocal<NullLiteral> NULL_INSTANCE =
-      ThreadLocal.withInitial(() -> new NullLiteral());
+  private static final ContextLocal<NullLiteral> NULL_INSTANCE =
+      ContextLocal.withInitial(() -> new NullLiteral());
 
   public static NullLiteral get() {
     return NULL_INSTANCE.get();
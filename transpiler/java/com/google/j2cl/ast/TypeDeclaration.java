@@ -27,12 +27,10 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.LinkedHashMultimap;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Streams;
 import com.google.j2cl.ast.TypeDescriptors.BootstrapType;
-import com.google.j2cl.common.ThreadLocalInterner;
+import com.google.j2cl.common.ConcurrentInterner;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
@@ -619,26 +617,7 @@ public abstract class TypeDeclaration
 
   /** Returns {@code true} if {@code this} is subtype of {@code that}. */
   public boolean isSubtypeOf(TypeDeclaration that) {
-    // TODO(b/70951075): distinguish between Java isSubtypeOf and our target interpretation of
-    // isSubtypeOf for optimization purposes in the context of jsinterop. Note that this method is
-    // used assuming it provides Java semantics.
-    return TypeDescriptors.isJavaLangObject(that.toUnparameterizedTypeDescriptor())
-        || getAllSuperTypesIncludingSelf().contains(that);
-  }
-
-  @Memoized
-  protected Set<TypeDeclaration> getAllSuperTypesIncludingSelf() {
-    Set<TypeDeclaration> allSupertypesIncludingSelf = new LinkedHashSet<>();
-    allSupertypesIncludingSelf.add(this);
-    if (getSuperTypeDescriptor() != null) {
-      allSupertypesIncludingSelf.addAll(
-          getSuperTypeDescriptor().getTypeDeclaration().getAllSuperTypesIncludingSelf());
-    }
-    for (DeclaredTypeDescriptor interfaceTypeDescriptor : getInterfaceTypeDescriptors()) {
-      allSupertypesIncludingSelf.addAll(
-          interfaceTypeDescriptor.getTypeDeclaration().getAllSuperTypesIncludingSelf());
-    }
-    return allSupertypesIncludingSelf;
+    return TypeHierarchyIndex.get().isSubtypeOf(this, that);
   }
 
   /**
@@ -709,49 +688,12 @@ public abstract class TypeDeclaration
     return accidentalOverriddenMethods;
   }
 
-  /**
-   * Builds and caches a mapping from method override signature to matching method descriptors from
-   * the entire super-type hierarchy. This map can *greatly* speed up method override checks.
-   */
-  @Memoized
-  Multimap<String, MethodDescriptor> getMethodDescriptorsByOverrideSignature() {
-    Multimap<String, MethodDescriptor> methodDescriptorsByOverrideSignature =
-        LinkedHashMultimap.create();
-
-    for (MethodDescriptor declaredMethodDescriptor : getDeclaredMethodDescriptors()) {
-      if (declaredMethodDescriptor.isPolymorphic()) {
-        methodDescriptorsByOverrideSignature.put(
-            declaredMethodDescriptor.getOverrideSignature(), declaredMethodDescriptor);
-      }
-    }
-
-    // Recurse into immediate super class and interfaces for overridden method.
-    if (getSuperTypeDescriptor() != null) {
-      methodDescriptorsByOverrideSignature.putAll(
-          getSuperTypeDescriptor().getTypeDeclaration().getMethodDescriptorsByOverrideSignature());
-    }
-
-    for (DeclaredTypeDescriptor interfaceTypeDescriptor : getInterfaceTypeDescriptors()) {
-      methodDescriptorsByOverrideSignature.putAll(
-          interfaceTypeDescriptor.getTypeDeclaration().getMethodDescriptorsByOverrideSignature());
-    }
-
-    return methodDescriptorsByOverrideSignature;
-  }
-
   /**
    * Returns a set of the method descriptors of methods in this type's super hierarchy that are
    * overridden by {@code methodDescriptor}.
    */
   public Set<MethodDescriptor> getOverriddenMethodDescriptors(MethodDescriptor methodDescriptor) {
-    Set<MethodDescriptor> overriddenMethodDescriptors =
-        (Set<MethodDescriptor>)
-            getMethodDescriptorsByOverrideSignature().get(methodDescriptor.getOverrideSignature());
-
-    Set<MethodDescriptor> overriddenMethodDescriptorsExceptSelf = new LinkedHashSet<>();
-    overriddenMethodDescriptorsExceptSelf.addAll(overriddenMethodDescriptors);
-    overriddenMethodDescriptorsExceptSelf.remove(methodDescriptor);
-    return overriddenMethodDescriptorsExceptSelf;
+    return TypeHierarchyIndex.get().getOverriddenMethodDescriptors(this, methodDescriptor);
   }
 
   /** Returns the method descriptors that are declared in a particular super type but not here. */
@@ -974,8 +916,8 @@ public abstract class TypeDeclaration
 
     abstract boolean isNative();
 
-    private static final ThreadLocalInterner<TypeDeclaration> interner =
-        new ThreadLocalInterner<>();
+    private static final ConcurrentInterner<TypeDeclaration> interner =
+        new ConcurrentInterner<>("TypeDeclaration");
 
     abstract TypeDeclaration autoBuild();
 
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.ast;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.j2cl.common.CompilationContext.ContextLocal;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An index of the type hierarchy seen by a compilation, which answers subtype and override queries
+ * without walking the type descriptors.
+ *
+ * <p>Type declarations are assigned dense ids the first time they are seen. The supertypes of each
+ * type are kept as a bitset over those ids, and the methods in the hierarchy of each type are
+ * tabulated by the id of their override signature as they are requested. Tables are shared with
+ * the supertypes whenever a type does not add methods for a signature.
+ *
+ * <p>There is a single index per compilation and it can be queried concurrently.
+ */
+public final class TypeHierarchyIndex {
+
+  private static final ContextLocal<TypeHierarchyIndex> typeHierarchyIndex =
+      ContextLocal.withInitial(TypeHierarchyIndex::new);
+
+  /** Returns the index of the current compilation. */
+  public static TypeHierarchyIndex get() {
+    return typeHierarchyIndex.get();
+  }
+
+  private final Map<String, TypeEntry> entryByUniqueId = new ConcurrentHashMap<>();
+  private final AtomicInteger nextId = new AtomicInteger();
+
+  private TypeHierarchyIndex() {}
+
+  /** Returns the dense id of {@code typeDeclaration} in this compilation. */
+  public int getId(TypeDeclaration typeDeclaration) {
+    return getEntry(typeDeclaration).id;
+  }
+
+  /** Returns {@code true} if {@code subtype} is {@code supertype} or a subtype of it. */
+  public boolean isSubtypeOf(TypeDeclaration subtype, TypeDeclaration supertype) {
+    // TODO(b/70951075): distinguish between Java isSubtypeOf and our target interpretation of
+    // isSubtypeOf for optimization purposes in the context of jsinterop. Note that this method is
+    // used assuming it provides Java semantics.
+    return TypeDescriptors.isJavaLangObject(supertype.toUnparameterizedTypeDescriptor())
+        || getEntry(subtype).getSupertypeIds().get(getId(supertype));
+  }
+
+  /**
+   * Returns the polymorphic methods in the hierarchy of {@code typeDeclaration}, including the ones
+   * it declares, that have the same override signature as {@code methodDescriptor}, except {@code
+   * methodDescriptor} itself.
+   */
+  public ImmutableSet<MethodDescriptor> getOverriddenMethodDescriptors(
+      TypeDeclaration typeDeclaration, MethodDescriptor methodDescriptor) {
+    ImmutableSet<MethodDescriptor> methodDescriptors =
+        getEntry(typeDeclaration).getMethodDescriptors(methodDescriptor.getOverrideSignatureId());
+    if (!methodDescriptors.contains(methodDescriptor)) {
+      return methodDescriptors;
+    }
+    return methodDescriptors.stream()
+        .filter(m -> !m.equals(methodDescriptor))
+        .collect(ImmutableSet.toImmutableSet());
+  }
+
+  private TypeEntry getEntry(TypeDeclaration typeDeclaration) {
+    TypeEntry entry = entryByUniqueId.get(typeDeclaration.getUniqueId());
+    if (entry != null) {
+      return entry;
+    }
+    return entryByUniqueId.computeIfAbsent(
+        typeDeclaration.getUniqueId(),
+        k -> new TypeEntry(nextId.getAndIncrement(), typeDeclaration));
+  }
+
+  /** The indexed information of a type declaration. */
+  private final class TypeEntry {
+    private final int id;
+    private final TypeDeclaration typeDeclaration;
+    // The tables are computed lazily; concurrent computations produce equal values, hence the
+    // last one to be published wins.
+    private volatile BitSet supertypeIds;
+    private volatile ImmutableListMultimap<Integer, MethodDescriptor> declaredMethodsBySignature;
+    private final Map<Integer, ImmutableSet<MethodDescriptor>> methodsBySignature =
+        new ConcurrentHashMap<>();
+
+    private TypeEntry(int id, TypeDeclaration typeDeclaration) {
+      this.id = id;
+      this.typeDeclaration = typeDeclaration;
+    }
+
+    /** Returns the ids of the supertypes of the type, including itself. */
+    private BitSet getSupertypeIds() {
+      BitSet supertypeIds = this.supertypeIds;
+      if (supertypeIds != null) {
+        return supertypeIds;
+      }
+      supertypeIds = new BitSet();
+      supertypeIds.set(id);
+      if (typeDeclaration.getSuperTypeDescriptor() != null) {
+        supertypeIds.or(
+            getEntry(typeDeclaration.getSuperTypeDescriptor().getTypeDeclaration())
+                .getSupertypeIds());
+      }
+      for (DeclaredTypeDescriptor interfaceTypeDescriptor :
+          typeDeclaration.getInterfaceTypeDescriptors()) {
+        supertypeIds.or(getEntry(interfaceTypeDescriptor.getTypeDeclaration()).getSupertypeIds());
+      }
+      this.supertypeIds = supertypeIds;
+      return supertypeIds;
+    }
+
+    /**
+     * Returns the polymorphic methods in the hierarchy of the type whose override signature has the
+     * given id.
+     */
+    private ImmutableSet<MethodDescriptor> getMethodDescriptors(int overrideSignatureId) {
+      ImmutableSet<MethodDescriptor> methodDescriptors =
+          methodsBySignature.get(overrideSignatureId);
+      if (methodDescriptors != null) {
+        return methodDescriptors;
+      }
+
+      // Declared methods come first, followed by the ones in the superclass and then the ones in
+      // the interfaces.
+      ImmutableSet.Builder<MethodDescriptor> builder = ImmutableSet.builder();
+      builder.addAll(getDeclaredMethodsBySignature().get(overrideSignatureId));
+      ImmutableSet<MethodDescriptor> onlyInheritedMethodDescriptors = null;
+      int contributingSupertypes = 0;
+      if (typeDeclaration.getSuperTypeDescriptor() != null) {
+        ImmutableSet<MethodDescriptor> inherited =
+            getEntry(typeDeclaration.getSuperTypeDescriptor().getTypeDeclaration())
+                .getMethodDescriptors(overrideSignatureId);
+        if (!inherited.isEmpty()) {
+          onlyInheritedMethodDescriptors = inherited;
+          contributingSupertypes++;
+          builder.addAll(inherited);
+        }
+      }
+      for (DeclaredTypeDescriptor interfaceTypeDescriptor :
+          typeDeclaration.getInterfaceTypeDescriptors()) {
+        ImmutableSet<MethodDescriptor> inherited =
+            getEntry(interfaceTypeDescriptor.getTypeDeclaration())
+                .getMethodDescriptors(overrideSignatureId);
+        if (!inherited.isEmpty()) {
+          onlyInheritedMethodDescriptors = inherited;
+          contributingSupertypes++;
+          builder.addAll(inherited);
+        }
+      }
+
+      methodDescriptors =
+          contributingSupertypes == 1
+                  && getDeclaredMethodsBySignature().get(overrideSignatureId).isEmpty()
+              ? onlyInheritedMethodDescriptors
+              : builder.build();
+      ImmutableSet<MethodDescriptor> existing =
+          methodsBySignature.putIfAbsent(overrideSignatureId, methodDescriptors);
+      return existing != null ? existing : methodDescriptors;
+    }
+
+    private ImmutableListMultimap<Integer, MethodDescriptor> getDeclaredMethodsBySignature() {
+      ImmutableListMultimap<Integer, MethodDescriptor> declaredMethodsBySignature =
+          this.declaredMethodsBySignature;
+      if (declaredMethodsBySignature != null) {
+        return declaredMethodsBySignature;
+      }
+      ImmutableListMultimap.Builder<Integer, MethodDescriptor> builder =
+          ImmutableListMultimap.builder();
+      for (MethodDescriptor methodDescriptor : typeDeclaration.getDeclaredMethodDescriptors()) {
+        if (methodDescriptor.isPolymorphic()) {
+          builder.put(methodDescriptor.getOverrideSignatureId(), methodDescriptor);
+        }
+      }
+      declaredMethodsBySignature = builder.build();
+      this.declaredMethodsBySignature = declaredMethodsBySignature;
+      return declaredMethodsBySignature;
+    }
+  }
+}
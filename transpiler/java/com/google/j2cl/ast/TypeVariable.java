@@ -18,7 +18,7 @@ package com.google.j2cl.ast;
 import com.google.auto.value.AutoValue;
 import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableSet;
-import com.google.j2cl.common.ThreadLocalInterner;
+import com.google.j2cl.common.ConcurrentInterner;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -174,7 +174,8 @@ public abstract class TypeVariable extends TypeDescriptor implements HasName {
 
     public abstract Builder setWildcardOrCapture(boolean isWildcardOrCapture);
 
-    private static final ThreadLocalInterner<TypeVariable> interner = new ThreadLocalInterner<>();
+    private static final ConcurrentInterner<TypeVariable> interner =
+        new ConcurrentInterner<>("TypeVariable");
 
     abstract TypeVariable autoBuild();
 
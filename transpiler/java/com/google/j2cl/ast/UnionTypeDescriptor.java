@@ -21,7 +21,7 @@ import com.google.auto.value.AutoValue;
 import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.j2cl.common.ThreadLocalInterner;
+import com.google.j2cl.common.ConcurrentInterner;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -176,8 +176,8 @@ public abstract class UnionTypeDescriptor extends TypeDescriptor {
 
     abstract UnionTypeDescriptor autoBuild();
 
-    private static final ThreadLocalInterner<UnionTypeDescriptor> interner =
-        new ThreadLocalInterner<>();
+    private static final ConcurrentInterner<UnionTypeDescriptor> interner =
+        new ConcurrentInterner<>("UnionTypeDescriptor");
 
     public UnionTypeDescriptor build() {
       return interner.intern(autoBuild());
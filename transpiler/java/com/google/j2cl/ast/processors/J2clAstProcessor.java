@@ -103,8 +103,19 @@ public class J2clAstProcessor extends AbstractProcessor {
         writeGeneralClass(ABSTRACT_VISITOR_TEMPLATE_FILE, "AbstractVisitor", packageName, classes);
         writeGeneralClass(
             ABSTRACT_REWRITER_TEMPLATE_FILE, "AbstractRewriter", packageName, classes);
+        writeGeneralClass(
+            ABSTRACT_CONTEXT_FREE_VISITOR_TEMPLATE_FILE,
+            "AbstractContextFreeVisitor",
+            packageName,
+            classes);
+        writeGeneralClass(
+            ABSTRACT_CONTEXT_FREE_REWRITER_TEMPLATE_FILE,
+            "AbstractContextFreeRewriter",
+            packageName,
+            classes);
         writeGeneralClass(
             ABSTRACT_TRANSFORMER_TEMPLATE_FILE, "AbstractTransformer", packageName, classes);
+        writeGeneralClass(FUSED_REWRITER_TEMPLATE_FILE, "FusedRewriter", packageName, classes);
         writeGeneralClass(
             PROCESSOR_PRIVATE_CLASS_TEMPLATE_FILE, "ProcessorPrivate", packageName, classes);
         writeGeneralClass(VISITOR_INTERFACE_TEMPLATE_FILE, "Visitor", packageName, classes);
@@ -279,9 +290,18 @@ public class J2clAstProcessor extends AbstractProcessor {
   private static final String ABSTRACT_REWRITER_TEMPLATE_FILE =
       "com/google/j2cl/ast/processors/AbstractRewriterClass.vm";
 
+  private static final String ABSTRACT_CONTEXT_FREE_VISITOR_TEMPLATE_FILE =
+      "com/google/j2cl/ast/processors/AbstractContextFreeVisitorClass.vm";
+
+  private static final String ABSTRACT_CONTEXT_FREE_REWRITER_TEMPLATE_FILE =
+      "com/google/j2cl/ast/processors/AbstractContextFreeRewriterClass.vm";
+
   private static final String ABSTRACT_TRANSFORMER_TEMPLATE_FILE =
       "com/google/j2cl/ast/processors/AbstractTransformerClass.vm";
 
+  private static final String FUSED_REWRITER_TEMPLATE_FILE =
+      "com/google/j2cl/ast/processors/FusedRewriterClass.vm";
+
   private static final String PROCESSOR_PRIVATE_CLASS_TEMPLATE_FILE =
       "com/google/j2cl/ast/processors/ProcessorPrivateClass.vm";
 
@@ -15,26 +15,74 @@
  */
 package com.google.j2cl.ast.processors.common;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
-/** Visitor helper for lists. */
+/**
+ * Visitor helper for lists.
+ *
+ * <p>The list is rewritten in a single pass: surviving nodes are compacted towards the front of
+ * the list and the tail is truncated at the end, so removing or replacing any number of nodes takes
+ * time linear in the size of the list. Lists whose nodes are all left unchanged are not written to.
+ */
 public class ListVisitor {
   public static <T> void visit(List<T> nodeList, Function<T, T> acceptor) {
-    for (int i = 0; i < nodeList.size(); i++) {
-      T oldNode = nodeList.get(i);
+    visit(nodeList, acceptor, () -> null);
+  }
+
+  /**
+   * Visits the nodes in {@code nodeList}, replacing each node with the result of {@code acceptor}.
+   *
+   * <p>A {@code null} result removes the node from the list unless {@code splicedNodesSupplier}
+   * provides the nodes that take its place.
+   */
+  public static <T> void visit(
+      List<T> nodeList, Function<T, T> acceptor, Supplier<List<T>> splicedNodesSupplier) {
+    int size = nodeList.size();
+    // Nodes in [0, writeIndex) are final; once a splice makes the list grow the remaining nodes
+    // are collected in splicedList instead, since they would overwrite nodes not yet visited.
+    int writeIndex = 0;
+    List<T> splicedList = null;
+    for (int readIndex = 0; readIndex < size; readIndex++) {
+      T oldNode = nodeList.get(readIndex);
       T newNode = acceptor.apply(oldNode);
-      if (newNode == null) {
+      if (newNode != null) {
+        if (splicedList != null) {
+          splicedList.add(newNode);
+        } else if (newNode != oldNode || writeIndex != readIndex) {
+          // Node is replaced or moved.
+          nodeList.set(writeIndex++, newNode);
+        } else {
+          writeIndex++;
+        }
+        continue;
+      }
+
+      List<T> splicedNodes = splicedNodesSupplier.get();
+      if (splicedNodes == null) {
         // Node is removed from list.
-        nodeList.remove(i);
-        i--;
         continue;
       }
-      if (newNode != oldNode) {
-        // Node is replaced.
-        nodeList.set(i, newNode);
+      if (splicedList == null && writeIndex + splicedNodes.size() > readIndex + 1) {
+        splicedList = new ArrayList<>(size - readIndex + splicedNodes.size());
+      }
+      if (splicedList != null) {
+        splicedList.addAll(splicedNodes);
+      } else {
+        for (T splicedNode : splicedNodes) {
+          nodeList.set(writeIndex++, splicedNode);
+        }
       }
     }
+
+    if (writeIndex < size) {
+      nodeList.subList(writeIndex, size).clear();
+    }
+    if (splicedList != null) {
+      nodeList.addAll(splicedList);
+    }
   }
 
   private ListVisitor() {}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.ast.visitors;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.j2cl.ast.CompilationUnit;
+import com.google.j2cl.ast.FusedRewriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Applies a sequence of fusible normalization passes in a single traversal. */
+public class FusedNormalizationPass extends NormalizationPass {
+  private final ImmutableList<FusibleNormalizationPass> passes;
+
+  public FusedNormalizationPass(List<FusibleNormalizationPass> passes) {
+    this.passes = ImmutableList.copyOf(passes);
+  }
+
+  public ImmutableList<FusibleNormalizationPass> getPasses() {
+    return passes;
+  }
+
+  @Override
+  public void applyTo(CompilationUnit compilationUnit) {
+    compilationUnit.accept(
+        new FusedRewriter(
+            passes.stream()
+                .map(FusibleNormalizationPass::createRewriter)
+                .collect(toImmutableList())));
+  }
+
+  /**
+   * Returns {@code passes} where each run of adjacent fusible passes has been replaced by a single
+   * fused pass.
+   */
+  public static ImmutableList<NormalizationPass> fuseAdjacentPasses(
+      List<NormalizationPass> passes) {
+    ImmutableList.Builder<NormalizationPass> fusedPasses = ImmutableList.builder();
+    List<FusibleNormalizationPass> currentGroup = new ArrayList<>();
+    for (NormalizationPass pass : passes) {
+      if (pass instanceof FusibleNormalizationPass) {
+        currentGroup.add((FusibleNormalizationPass) pass);
+        continue;
+      }
+      addGroup(fusedPasses, currentGroup);
+      currentGroup.clear();
+      fusedPasses.add(pass);
+    }
+    addGroup(fusedPasses, currentGroup);
+    return fusedPasses.build();
+  }
+
+  private static void addGroup(
+      ImmutableList.Builder<NormalizationPass> fusedPasses, List<FusibleNormalizationPass> group) {
+    if (group.size() == 1) {
+      // There is nothing to gain from fusing a single pass.
+      fusedPasses.add(group.get(0));
+    } else if (!group.isEmpty()) {
+      fusedPasses.add(new FusedNormalizationPass(group));
+    }
+  }
+}
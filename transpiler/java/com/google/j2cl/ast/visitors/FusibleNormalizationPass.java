@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.ast.visitors;
+
+import com.google.j2cl.ast.AbstractRewriter;
+import com.google.j2cl.ast.CompilationUnit;
+
+/**
+ * A normalization pass that consists of a single local rewrite and can therefore share its
+ * traversal with adjacent fusible passes.
+ *
+ * <p>The rewriter returned by {@link #createRewriter} must only look at the node being rewritten
+ * and its subtree; in particular it must not use the context getters (e.g. {@code getCurrentType})
+ * nor prune the traversal through {@code shouldProcess}. The nodes it creates should not need to
+ * be seen by the passes that follow it in a fused group, except for the root of its result, which
+ * is handed over to the next pass.
+ */
+public abstract class FusibleNormalizationPass extends NormalizationPass {
+
+  /** Returns a new rewriter that performs the normalization. */
+  public abstract AbstractRewriter createRewriter();
+
+  @Override
+  public final void applyTo(CompilationUnit compilationUnit) {
+    compilationUnit.accept(createRewriter());
+  }
+}
@@ -50,6 +50,11 @@ public class ImplementLambdaExpressions extends NormalizationPass {
 
   private int lambdaCounterPerCompilationUnit = 1;
 
+  /** Returns the number that the next per instance lambda adaptor will be given. */
+  public int getNextLambdaAdaptorNumber() {
+    return lambdaCounterPerCompilationUnit;
+  }
+
   @Override
   public void applyTo(CompilationUnit compilationUnit) {
     List<Type> newLambdaAdaptors = new ArrayList<>();
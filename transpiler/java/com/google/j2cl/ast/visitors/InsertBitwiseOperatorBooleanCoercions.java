@@ -19,7 +19,6 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import com.google.j2cl.ast.AbstractRewriter;
 import com.google.j2cl.ast.BinaryExpression;
-import com.google.j2cl.ast.CompilationUnit;
 import com.google.j2cl.ast.Node;
 import com.google.j2cl.ast.TypeDescriptors;
 
@@ -32,27 +31,26 @@ import com.google.j2cl.ast.TypeDescriptors;
  * not explicit coercions from number to boolean and vice versa.
  *
  */
-public class InsertBitwiseOperatorBooleanCoercions extends NormalizationPass {
+public class InsertBitwiseOperatorBooleanCoercions extends FusibleNormalizationPass {
   @Override
-  public void applyTo(CompilationUnit compilationUnit) {
-    compilationUnit.accept(
-        new AbstractRewriter() {
-          @Override
-          public Node rewriteBinaryExpression(BinaryExpression binaryExpression) {
-            if (binaryExpression.getOperator().isBitwiseOperator()
-                && TypeDescriptors.isPrimitiveBoolean(binaryExpression.getTypeDescriptor())) {
-              checkArgument(!binaryExpression.getOperator().isCompoundAssignment());
-              // Perform the following transformation:
-              //   boolExp1 ^ boolExp2" -> "!!(+(boolExp1) ^ +(boolExp2))
-              return BinaryExpression.Builder.from(binaryExpression)
-                  .setLeftOperand(binaryExpression.getLeftOperand().prefixPlus())
-                  .setRightOperand(binaryExpression.getRightOperand().prefixPlus())
-                  .build()
-                  .prefixNot()
-                  .prefixNot();
-            }
-            return binaryExpression;
-          }
-        });
+  public AbstractRewriter createRewriter() {
+    return new AbstractRewriter() {
+      @Override
+      public Node rewriteBinaryExpression(BinaryExpression binaryExpression) {
+        if (binaryExpression.getOperator().isBitwiseOperator()
+            && TypeDescriptors.isPrimitiveBoolean(binaryExpression.getTypeDescriptor())) {
+          checkArgument(!binaryExpression.getOperator().isCompoundAssignment());
+          // Perform the following transformation:
+          //   boolExp1 ^ boolExp2" -> "!!(+(boolExp1) ^ +(boolExp2))
+          return BinaryExpression.Builder.from(binaryExpression)
+              .setLeftOperand(binaryExpression.getLeftOperand().prefixPlus())
+              .setRightOperand(binaryExpression.getRightOperand().prefixPlus())
+              .build()
+              .prefixNot()
+              .prefixNot();
+        }
+        return binaryExpression;
+      }
+    };
   }
 }
@@ -20,7 +20,6 @@ import static com.google.common.base.Preconditions.checkArgument;
 import com.google.j2cl.ast.AbstractRewriter;
 import com.google.j2cl.ast.BinaryExpression;
 import com.google.j2cl.ast.BinaryOperator;
-import com.google.j2cl.ast.CompilationUnit;
 import com.google.j2cl.ast.Node;
 import com.google.j2cl.ast.RuntimeMethods;
 import com.google.j2cl.ast.TypeDescriptor;
@@ -30,24 +29,23 @@ import com.google.j2cl.ast.TypeDescriptors;
  * Instruments integer division and remainders to emit ArithmeticExpression if necessary and coerce
  * the result.
  */
-public class InsertDivisionCoercions extends NormalizationPass {
+public class InsertDivisionCoercions extends FusibleNormalizationPass {
   @Override
-  public void applyTo(CompilationUnit compilationUnit) {
-    compilationUnit.accept(
-        new AbstractRewriter() {
-          @Override
-          public Node rewriteBinaryExpression(BinaryExpression binaryExpression) {
-            boolean isDivision =
-                binaryExpression.getOperator() == BinaryOperator.DIVIDE
-                    || binaryExpression.getOperator() == BinaryOperator.REMAINDER;
-            TypeDescriptor expressionTypeDescriptor = binaryExpression.getTypeDescriptor();
-            if (isDivision && TypeDescriptors.isIntegralPrimitiveType(expressionTypeDescriptor)) {
-              // Long operations have already been normalized out.
-              checkArgument(!TypeDescriptors.isPrimitiveLong(expressionTypeDescriptor));
-              return RuntimeMethods.createPrimitivesMethodCall("$coerceDivision", binaryExpression);
-            }
-            return binaryExpression;
-          }
-        });
+  public AbstractRewriter createRewriter() {
+    return new AbstractRewriter() {
+      @Override
+      public Node rewriteBinaryExpression(BinaryExpression binaryExpression) {
+        boolean isDivision =
+            binaryExpression.getOperator() == BinaryOperator.DIVIDE
+                || binaryExpression.getOperator() == BinaryOperator.REMAINDER;
+        TypeDescriptor expressionTypeDescriptor = binaryExpression.getTypeDescriptor();
+        if (isDivision && TypeDescriptors.isIntegralPrimitiveType(expressionTypeDescriptor)) {
+          // Long operations have already been normalized out.
+          checkArgument(!TypeDescriptors.isPrimitiveLong(expressionTypeDescriptor));
+          return RuntimeMethods.createPrimitivesMethodCall("$coerceDivision", binaryExpression);
+        }
+        return binaryExpression;
+      }
+    };
   }
 }
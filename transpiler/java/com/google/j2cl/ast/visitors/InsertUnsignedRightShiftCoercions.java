@@ -18,7 +18,6 @@ package com.google.j2cl.ast.visitors;
 import com.google.j2cl.ast.AbstractRewriter;
 import com.google.j2cl.ast.BinaryExpression;
 import com.google.j2cl.ast.BinaryOperator;
-import com.google.j2cl.ast.CompilationUnit;
 import com.google.j2cl.ast.Node;
 import com.google.j2cl.ast.NumberLiteral;
 
@@ -28,25 +27,24 @@ import com.google.j2cl.ast.NumberLiteral;
  * <p>In Java {@code x >>> 0 == x} but in JavaScript the result is the positive unsigned integer,
  * e.g. -1 >>> 0 = 4294967295 instead of -1.
  */
-public class InsertUnsignedRightShiftCoercions extends NormalizationPass {
+public class InsertUnsignedRightShiftCoercions extends FusibleNormalizationPass {
   @Override
-  public void applyTo(CompilationUnit compilationUnit) {
-    compilationUnit.accept(
-        new AbstractRewriter() {
-          @Override
-          public Node rewriteBinaryExpression(BinaryExpression binaryExpression) {
-            // Maybe perform this transformation:
-            // "x >>> y" -> "(x >>> y | 0)"
-            if (binaryExpression.getOperator() == BinaryOperator.RIGHT_SHIFT_UNSIGNED) {
-              return BinaryExpression.newBuilder()
-                  .setLeftOperand(binaryExpression)
-                  .setOperator(BinaryOperator.BIT_OR)
-                  .setRightOperand(NumberLiteral.fromInt(0))
-                  .build()
-                  .parenthesize();
-            }
-            return binaryExpression;
-          }
-        });
+  public AbstractRewriter createRewriter() {
+    return new AbstractRewriter() {
+      @Override
+      public Node rewriteBinaryExpression(BinaryExpression binaryExpression) {
+        // Maybe perform this transformation:
+        // "x >>> y" -> "(x >>> y | 0)"
+        if (binaryExpression.getOperator() == BinaryOperator.RIGHT_SHIFT_UNSIGNED) {
+          return BinaryExpression.newBuilder()
+              .setLeftOperand(binaryExpression)
+              .setOperator(BinaryOperator.BIT_OR)
+              .setRightOperand(NumberLiteral.fromInt(0))
+              .build()
+              .parenthesize();
+        }
+        return binaryExpression;
+      }
+    };
   }
 }
@@ -15,8 +15,8 @@
  */
 package com.google.j2cl.ast.visitors;
 
-import com.google.j2cl.ast.AbstractRewriter;
-import com.google.j2cl.ast.AbstractVisitor;
+import com.google.j2cl.ast.AbstractContextFreeRewriter;
+import com.google.j2cl.ast.AbstractContextFreeVisitor;
 import com.google.j2cl.ast.ArrayLiteral;
 import com.google.j2cl.ast.CompilationUnit;
 import com.google.j2cl.ast.NewArray;
@@ -38,7 +38,7 @@ public class NormalizeArrayLiterals extends NormalizationPass {
     compilationUnit.accept(new RewriteShortFormToLongFormRewriter(longFormArrayLiterals));
   }
 
-  private static class CollectLongFormArrayLiteralsVisitor extends AbstractVisitor {
+  private static class CollectLongFormArrayLiteralsVisitor extends AbstractContextFreeVisitor {
 
     private final Set<ArrayLiteral> longFormArrayLiterals;
 
@@ -55,7 +55,7 @@ public class NormalizeArrayLiterals extends NormalizationPass {
     }
   }
 
-  private static class RewriteShortFormToLongFormRewriter extends AbstractRewriter {
+  private static class RewriteShortFormToLongFormRewriter extends AbstractContextFreeRewriter {
 
     private final Set<ArrayLiteral> longFormArrayLiterals;
 
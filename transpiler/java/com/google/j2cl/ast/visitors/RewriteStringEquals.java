@@ -16,7 +16,7 @@
 package com.google.j2cl.ast.visitors;
 
 import com.google.common.collect.Iterables;
-import com.google.j2cl.ast.AbstractRewriter;
+import com.google.j2cl.ast.AbstractContextFreeRewriter;
 import com.google.j2cl.ast.BinaryExpression;
 import com.google.j2cl.ast.BinaryOperator;
 import com.google.j2cl.ast.CompilationUnit;
@@ -30,7 +30,7 @@ public class RewriteStringEquals extends NormalizationPass {
   @Override
   public void applyTo(CompilationUnit compilationUnit) {
     compilationUnit.accept(
-        new AbstractRewriter() {
+        new AbstractContextFreeRewriter() {
           @Override
           public Expression rewriteMethodCall(MethodCall methodCall) {
             if (!methodCall.getTarget().equals(getStringEquals())
@@ -17,19 +17,33 @@ package com.google.j2cl.bazel;
 
 
 import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.io.BaseEncoding;
 import com.google.common.io.Files;
+import com.google.devtools.build.lib.worker.WorkerProtocol.Input;
 import com.google.devtools.build.lib.worker.WorkerProtocol.WorkRequest;
 import com.google.devtools.build.lib.worker.WorkerProtocol.WorkResponse;
+import com.google.j2cl.common.CompilationContext;
 import com.google.j2cl.common.Problems;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
@@ -38,12 +52,70 @@ import org.kohsuke.args4j.CmdLineParser;
  * A base class for running processes as blaze workers. Used for both the transpiler
  * and @GwtIncompatible stripper tool.
  *
+ * <p>Persistent workers support multiplexing: requests that carry a request id are processed
+ * concurrently on a bounded pool of threads and their responses are written as they complete.
+ *
+ * <p>Persistent workers can also report metrics about the requests they process, configured with
+ * the following system properties:
+ *
+ * <ul>
+ *   <li>{@code j2cl.worker.statsFile}: a JSON file into which the aggregated metrics are flushed
+ *       periodically. The id of the worker process is appended to the file name, since Bazel
+ *       might start several worker processes with the same system properties.
+ *   <li>{@code j2cl.worker.statsFlushIntervalSeconds}: how often the stats file is written, 30
+ *       seconds by default.
+ *   <li>{@code j2cl.worker.statsSummary}: if true, a summary line with the metrics of the request
+ *       is appended to the output of each response.
+ * </ul>
+ *
  * <p>Partially adapted from {@code com.google.devtools.build.buildjar.BazelJavaBuilder}.
  */
 public abstract class BazelWorker {
 
+  private static final String STATS_FILE = System.getProperty("j2cl.worker.statsFile");
+  private static final long STATS_FLUSH_INTERVAL_SECONDS =
+      Long.getLong("j2cl.worker.statsFlushIntervalSeconds", 30);
+  private static final boolean STATS_SUMMARY = Boolean.getBoolean("j2cl.worker.statsSummary");
+
+  private static final WorkerStats workerStats = new WorkerStats();
+
+  private final WorkerStats.RequestStats requestStats = new WorkerStats.RequestStats();
+
+  private ImmutableMap<Path, String> inputDigests = ImmutableMap.of();
+
   protected abstract Problems run();
 
+  /**
+   * Returns the content digests that Bazel sent with the request for its inputs, keyed by their
+   * absolute paths. The map is empty for standalone invocations.
+   */
+  protected final ImmutableMap<Path, String> getInputDigests() {
+    return inputDigests;
+  }
+
+  /**
+   * Returns true if the metrics of the requests are reported, in which case workers should record
+   * them by means of {@link #recordTime} and {@link #recordCount}.
+   */
+  protected static boolean isCollectingStats() {
+    return STATS_FILE != null || STATS_SUMMARY;
+  }
+
+  /** Records the time spent in a stage of the current request, e.g. parse, transpile or output. */
+  protected final void recordTime(String stage, long nanos) {
+    requestStats.addTime(stage, nanos);
+  }
+
+  /** Records a counter of the current request, e.g. the number of compilation units. */
+  protected final void recordCount(String name, long count) {
+    requestStats.addCount(name, count);
+  }
+
+  /** Registers a cache that lives across requests so that its hit rate is reported. */
+  protected static void registerCache(String name, LongSupplier hitCount, LongSupplier missCount) {
+    workerStats.registerCache(name, hitCount, missCount);
+  }
+
   /**
    * Process the request described by the arguments. Note that you must output errors and warnings
    * via {@link Problems} to avoid interrupting the worker protocol which occurs over stdout.
@@ -82,29 +154,136 @@ public abstract class BazelWorker {
     System.exit(exitCode);
   }
 
+  /**
+   * The maximum number of requests that a multiplexed worker processes concurrently; further
+   * requests wait until a previous one completes.
+   */
+  private static final int MAX_CONCURRENT_REQUESTS =
+      Integer.getInteger(
+          "j2cl.worker.maxConcurrentRequests", Runtime.getRuntime().availableProcessors());
+
   private static void runPersistentWorker(Supplier<BazelWorker> workerSupplier) throws IOException {
-    while (true) {
-      WorkRequest request = WorkRequest.parseDelimitedFrom(System.in);
+    WorkerGcPolicy gcPolicy = WorkerGcPolicy.fromSystemProperties();
+    if (STATS_FILE != null) {
+      workerStats.startFlushing(getStatsPath(), STATS_FLUSH_INTERVAL_SECONDS, gcPolicy);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+    try {
+      while (true) {
+        WorkRequest request = WorkRequest.parseDelimitedFrom(System.in);
 
-      if (request == null) {
-        break;
+        if (request == null) {
+          break;
+        }
+
+        long receivedNanos = System.nanoTime();
+        gcPolicy.onRequestStarted();
+        if (request.getRequestId() == 0) {
+          // Requests without an id are sent by Bazel when multiplexing is not enabled and must be
+          // processed one at a time.
+          processPersistentRequest(workerSupplier, request, receivedNanos, gcPolicy);
+        } else {
+          executor.execute(
+              () -> processPersistentRequest(workerSupplier, request, receivedNanos, gcPolicy));
+        }
+      }
+    } finally {
+      // Let the requests in flight complete so that their responses are written.
+      executor.shutdown();
+      awaitTermination(executor);
+      if (STATS_FILE != null) {
+        workerStats.flush(getStatsPath(), gcPolicy);
       }
+    }
+  }
+
+  /** Returns the path of the stats file of this worker process. */
+  private static Path getStatsPath() {
+    // The runtime name is "<pid>@<host>" on the usual JVMs, it is used whole otherwise.
+    String runtimeName = ManagementFactory.getRuntimeMXBean().getName();
+    int atIndex = runtimeName.indexOf('@');
+    String processId = atIndex > 0 ? runtimeName.substring(0, atIndex) : runtimeName;
+    return Paths.get(STATS_FILE + "." + processId);
+  }
 
-      StringWriter sw = new StringWriter();
-      PrintWriter pw = new PrintWriter(sw);
-      String[] args = request.getArgumentsList().toArray(new String[0]);
-      int exitCode = workerSupplier.get().processRequest(args).reportAndGetExitCode(pw);
-      WorkResponse.newBuilder()
-          .setOutput(sw.toString())
-          .setExitCode(exitCode)
-          .build()
-          .writeDelimitedTo(System.out);
+  private static void processPersistentRequest(
+      Supplier<BazelWorker> workerSupplier,
+      WorkRequest request,
+      long receivedNanos,
+      WorkerGcPolicy gcPolicy) {
+    long startNanos = System.nanoTime();
+    StringWriter sw = new StringWriter();
+    PrintWriter pw = new PrintWriter(sw);
+    String[] args = request.getArgumentsList().toArray(new String[0]);
+    BazelWorker worker = workerSupplier.get();
+    worker.inputDigests = getInputDigests(request);
+    int exitCode = 1;
+    try {
+      // Each request runs in a context of its own so that requests that run concurrently, or one
+      // after the other in the same thread, do not see each other's state.
+      exitCode =
+          new CompilationContext().call(() -> worker.processRequest(args).reportAndGetExitCode(pw));
+    } catch (Throwable e) {
+      // Other requests might still be running; report the failure instead of bringing down the
+      // worker, which would leave Bazel waiting for a response.
+      e.printStackTrace(pw);
+      exitCode = 1;
+    } finally {
+      // A response must be written for every request, whatever happened while processing it.
+      try {
+        long queueWaitNanos = startNanos - receivedNanos;
+        long processingNanos = System.nanoTime() - startNanos;
+        workerStats.record(worker.requestStats, queueWaitNanos, processingNanos, exitCode != 0);
+        if (STATS_SUMMARY) {
+          pw.println(worker.requestStats.toSummaryLine(queueWaitNanos, processingNanos));
+        }
+        pw.flush();
+        writeResponse(
+            WorkResponse.newBuilder()
+                .setOutput(sw.toString())
+                .setExitCode(exitCode)
+                .setRequestId(request.getRequestId())
+                .build());
+      } finally {
+        // After a compile completes lots of objects should be available for collection and it
+        // should be cheap to collect them; the policy decides whether it is worth doing it now.
+        gcPolicy.onRequestCompleted();
+      }
+    }
+  }
+
+  /** Returns the digests of the inputs of {@code request} that Bazel provided one for. */
+  private static ImmutableMap<Path, String> getInputDigests(WorkRequest request) {
+    Map<Path, String> digestByPath = new HashMap<>();
+    for (Input input : request.getInputsList()) {
+      if (input.getDigest().isEmpty()) {
+        continue;
+      }
+      // Digests are opaque tokens; one that was computed differently can only cause cache misses.
+      digestByPath.put(
+          Paths.get(input.getPath()).toAbsolutePath().normalize(),
+          BaseEncoding.base16().lowerCase().encode(input.getDigest().toByteArray()));
+    }
+    return ImmutableMap.copyOf(digestByPath);
+  }
+
+  /** Writes a response, responses of concurrent requests are written one at a time. */
+  private static synchronized void writeResponse(WorkResponse response) {
+    try {
+      response.writeDelimitedTo(System.out);
       System.out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 
-      // Hint to the system that now would be a good time to run a gc.  After a compile
-      // completes lots of objects should be available for collection and it should be cheap to
-      // collect them.
-      System.gc();
+  private static void awaitTermination(ExecutorService executor) {
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        // Keep waiting, requests cannot be cancelled.
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
   }
 
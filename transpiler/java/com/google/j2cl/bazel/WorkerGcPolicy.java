@@ -0,0 +1,208 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.bazel;
+
+import com.google.common.base.Ascii;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Decides when a persistent worker collects garbage between requests.
+ *
+ * <p>Right after a request completes most of the objects it allocated are garbage and collecting
+ * them is cheap, but an explicit collection still costs time that is better not spent on the
+ * critical path when the heap has plenty of room left. The adaptive policy only collects when the
+ * old generation is occupied beyond a threshold, and only after the worker has been idle for a
+ * while; a request that arrives in the meantime cancels the collection.
+ *
+ * <p>The policy is configured with the following system properties:
+ *
+ * <ul>
+ *   <li>{@code j2cl.worker.gcPolicy}: {@code adaptive} (default), {@code always} to collect after
+ *       every request, or {@code never}.
+ *   <li>{@code j2cl.worker.gcOccupancyThreshold}: the fraction of the old generation that needs to
+ *       be in use for the adaptive policy to collect, 0.5 by default.
+ *   <li>{@code j2cl.worker.gcIdleDelayMillis}: how long the worker needs to be idle before the
+ *       adaptive policy collects, 200ms by default.
+ * </ul>
+ */
+final class WorkerGcPolicy {
+
+  /** When garbage is collected. */
+  enum Mode {
+    /** Collects after every request, as soon as no other request is running. */
+    ALWAYS,
+    /** Collects while idle, when the occupancy of the old generation exceeds the threshold. */
+    ADAPTIVE,
+    /** Leaves collection entirely to the JVM. */
+    NEVER
+  }
+
+  static WorkerGcPolicy fromSystemProperties() {
+    return new WorkerGcPolicy(
+        Mode.valueOf(Ascii.toUpperCase(System.getProperty("j2cl.worker.gcPolicy", "adaptive"))),
+        Double.parseDouble(System.getProperty("j2cl.worker.gcOccupancyThreshold", "0.5")),
+        Long.getLong("j2cl.worker.gcIdleDelayMillis", 200));
+  }
+
+  private final Mode mode;
+  private final double occupancyThreshold;
+  private final long idleDelayMillis;
+  @Nullable private final MemoryPoolMXBean oldGenerationPool = findOldGenerationPool();
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "j2cl-worker-gc");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private int runningRequestCount;
+  @Nullable private ScheduledFuture<?> scheduledCollection;
+  private long collectionCount;
+  private long collectionNanos;
+  private long lastHeapUsedBeforeBytes;
+  private long lastHeapUsedAfterBytes;
+
+  private WorkerGcPolicy(Mode mode, double occupancyThreshold, long idleDelayMillis) {
+    this.mode = mode;
+    this.occupancyThreshold = occupancyThreshold;
+    this.idleDelayMillis = idleDelayMillis;
+  }
+
+  /** Called when a request arrives. */
+  synchronized void onRequestStarted() {
+    runningRequestCount++;
+    if (scheduledCollection != null) {
+      // The worker is not idle anymore, the collection would now be on the critical path.
+      scheduledCollection.cancel(false);
+      scheduledCollection = null;
+    }
+  }
+
+  /** Called when a request completed and its response was written. */
+  void onRequestCompleted() {
+    synchronized (this) {
+      runningRequestCount--;
+      if (runningRequestCount > 0) {
+        // Never collect while other requests are running.
+        return;
+      }
+    }
+
+    switch (mode) {
+      case ALWAYS:
+        collect();
+        break;
+      case ADAPTIVE:
+        if (getOldGenerationOccupancy() >= occupancyThreshold) {
+          scheduleCollection();
+        }
+        break;
+      case NEVER:
+        break;
+    }
+  }
+
+  private synchronized void scheduleCollection() {
+    if (runningRequestCount == 0 && scheduledCollection == null) {
+      scheduledCollection =
+          scheduler.schedule(this::collectIfIdle, idleDelayMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void collectIfIdle() {
+    synchronized (this) {
+      scheduledCollection = null;
+      if (runningRequestCount > 0) {
+        return;
+      }
+    }
+    collect();
+  }
+
+  private void collect() {
+    long heapUsedBeforeBytes = getHeapUsedBytes();
+    long startNanos = System.nanoTime();
+    System.gc();
+    long elapsedNanos = System.nanoTime() - startNanos;
+    long heapUsedAfterBytes = getHeapUsedBytes();
+
+    synchronized (this) {
+      collectionCount++;
+      collectionNanos += elapsedNanos;
+      lastHeapUsedBeforeBytes = heapUsedBeforeBytes;
+      lastHeapUsedAfterBytes = heapUsedAfterBytes;
+    }
+    // Stderr of a persistent worker ends up in its log, stdout is reserved for the protocol.
+    System.err.printf(
+        "j2cl worker gc: heap %dMB -> %dMB in %dms%n",
+        heapUsedBeforeBytes >> 20,
+        heapUsedAfterBytes >> 20,
+        TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+  }
+
+  /**
+   * Returns the fraction of the old generation that is in use, or of the whole heap if the
+   * collector does not have a separate old generation.
+   */
+  private double getOldGenerationOccupancy() {
+    MemoryUsage usage =
+        oldGenerationPool != null
+            ? oldGenerationPool.getUsage()
+            : ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    long capacity = usage.getMax() > 0 ? usage.getMax() : usage.getCommitted();
+    return capacity > 0 ? (double) usage.getUsed() / capacity : 0;
+  }
+
+  @Nullable
+  private static MemoryPoolMXBean findOldGenerationPool() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP
+          && (pool.getName().contains("Old Gen") || pool.getName().contains("Tenured"))) {
+        return pool;
+      }
+    }
+    return null;
+  }
+
+  private static long getHeapUsedBytes() {
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  synchronized long getCollectionCount() {
+    return collectionCount;
+  }
+
+  synchronized long getCollectionNanos() {
+    return collectionNanos;
+  }
+
+  synchronized long getLastHeapUsedBeforeBytes() {
+    return lastHeapUsedBeforeBytes;
+  }
+
+  synchronized long getLastHeapUsedAfterBytes() {
+    return lastHeapUsedAfterBytes;
+  }
+}
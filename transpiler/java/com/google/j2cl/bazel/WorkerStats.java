@@ -0,0 +1,245 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.bazel;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.j2cl.common.J2clUtils;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Aggregates the metrics of the requests processed by a worker process.
+ *
+ * <p>Workers report the time spent in each stage of a request and counters like the number of
+ * compilation units through a {@link RequestStats}; caches that live across requests are registered
+ * once and their hit rates are reported with the rest of the metrics.
+ */
+final class WorkerStats {
+
+  /** The metrics of a single request. */
+  static final class RequestStats {
+    private final Map<String, Long> nanosByStage = new LinkedHashMap<>();
+    private final Map<String, Long> countByName = new LinkedHashMap<>();
+
+    RequestStats() {}
+
+    /** Adds {@code nanos} to the time spent in {@code stage}, e.g. parse, transpile or output. */
+    synchronized void addTime(String stage, long nanos) {
+      nanosByStage.merge(stage, nanos, Long::sum);
+    }
+
+    /** Adds {@code delta} to the counter {@code name}, e.g. the number of units processed. */
+    synchronized void addCount(String name, long delta) {
+      countByName.merge(name, delta, Long::sum);
+    }
+
+    /** Returns a single line summary of the request, suitable for the output of a response. */
+    synchronized String toSummaryLine(long queueWaitNanos, long processingNanos) {
+      StringBuilder summary =
+          new StringBuilder("Worker stats:")
+              .append(" queueWait=")
+              .append(TimeUnit.NANOSECONDS.toMillis(queueWaitNanos))
+              .append("ms total=")
+              .append(TimeUnit.NANOSECONDS.toMillis(processingNanos))
+              .append("ms");
+      nanosByStage.forEach(
+          (stage, nanos) ->
+              summary
+                  .append(' ')
+                  .append(stage)
+                  .append('=')
+                  .append(TimeUnit.NANOSECONDS.toMillis(nanos))
+                  .append("ms"));
+      countByName.forEach(
+          (name, count) -> summary.append(' ').append(name).append('=').append(count));
+      return summary.toString();
+    }
+  }
+
+  private final Map<String, Long> nanosByStage = new LinkedHashMap<>();
+  private final Map<String, Long> countByName = new LinkedHashMap<>();
+  private final Map<String, CacheCounters> cacheCountersByName = new LinkedHashMap<>();
+  private long requestCount;
+  private long failedRequestCount;
+  private long queueWaitNanos;
+  private long maxQueueWaitNanos;
+  private long processingNanos;
+  /**
+   * The largest heap usage seen when a request completed. This is sampled, not the true peak of
+   * the process: garbage created and collected during a request is not accounted for.
+   */
+  private long maxHeapBytesAtRequestEnd;
+
+  /** Registers a cache that lives across requests so that its hit rate is reported. */
+  synchronized void registerCache(String name, LongSupplier hitCount, LongSupplier missCount) {
+    cacheCountersByName.put(name, new CacheCounters(hitCount, missCount));
+  }
+
+  /** Records a completed request. */
+  synchronized void record(
+      RequestStats requestStats, long queueWaitNanos, long processingNanos, boolean failed) {
+    requestCount++;
+    if (failed) {
+      failedRequestCount++;
+    }
+    this.queueWaitNanos += queueWaitNanos;
+    this.maxQueueWaitNanos = Math.max(this.maxQueueWaitNanos, queueWaitNanos);
+    this.processingNanos += processingNanos;
+    // The heap is sampled as each request completes, before the GC policy gets a chance to
+    // collect the garbage the request left behind.
+    this.maxHeapBytesAtRequestEnd = Math.max(this.maxHeapBytesAtRequestEnd, getUsedHeapBytes());
+    synchronized (requestStats) {
+      requestStats.nanosByStage.forEach((k, v) -> nanosByStage.merge(k, v, Long::sum));
+      requestStats.countByName.forEach((k, v) -> countByName.merge(k, v, Long::sum));
+    }
+  }
+
+  /** Returns the aggregated metrics as a JSON document. */
+  synchronized String toJson(WorkerGcPolicy gcPolicy) {
+    List<String> caches = new ArrayList<>();
+    cacheCountersByName.forEach(
+        (name, counters) -> {
+          long hits = counters.hitCount.getAsLong();
+          long misses = counters.missCount.getAsLong();
+          double hitRate = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+          caches.add(
+              String.format(
+                  Locale.ROOT,
+                  "    \"%s\": {\"hits\": %d, \"misses\": %d, \"hitRate\": %.4f}",
+                  J2clUtils.escapeJsonString(name),
+                  hits,
+                  misses,
+                  hitRate));
+        });
+
+    return "{\n"
+        + String.format(Locale.ROOT, "  \"requestCount\": %d,\n", requestCount)
+        + String.format(Locale.ROOT, "  \"failedRequestCount\": %d,\n", failedRequestCount)
+        + String.format(
+            Locale.ROOT,
+            "  \"queueWaitMillis\": %d,\n",
+            TimeUnit.NANOSECONDS.toMillis(queueWaitNanos))
+        + String.format(
+            Locale.ROOT,
+            "  \"maxQueueWaitMillis\": %d,\n",
+            TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos))
+        + String.format(
+            Locale.ROOT,
+            "  \"processingMillis\": %d,\n",
+            TimeUnit.NANOSECONDS.toMillis(processingNanos))
+        + String.format(Locale.ROOT, "  \"stageMillis\": %s,\n", toJsonObject(nanosByStage, true))
+        + String.format(Locale.ROOT, "  \"counters\": %s,\n", toJsonObject(countByName, false))
+        + String.format(Locale.ROOT, "  \"caches\": {\n%s\n  },\n", String.join(",\n", caches))
+        + String.format(
+            Locale.ROOT, "  \"maxHeapBytesAtRequestEnd\": %d,\n", maxHeapBytesAtRequestEnd)
+        + String.format(
+            Locale.ROOT,
+            "  \"gc\": {\"count\": %d, \"millis\": %d, \"lastHeapBeforeBytes\": %d, "
+                + "\"lastHeapAfterBytes\": %d}\n",
+            gcPolicy.getCollectionCount(),
+            TimeUnit.NANOSECONDS.toMillis(gcPolicy.getCollectionNanos()),
+            gcPolicy.getLastHeapUsedBeforeBytes(),
+            gcPolicy.getLastHeapUsedAfterBytes())
+        + "}\n";
+  }
+
+  /**
+   * Writes the metrics into {@code path} every {@code intervalSeconds}, in the background.
+   *
+   * <p>The file is replaced atomically so that readers never observe a partially written file.
+   * Each worker process should be given a path of its own, since the metrics are not merged with
+   * the ones of other processes.
+   */
+  void startFlushing(Path path, long intervalSeconds, WorkerGcPolicy gcPolicy) {
+    ScheduledExecutorService scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "j2cl-worker-stats");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.scheduleWithFixedDelay(
+        () -> flush(path, gcPolicy), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+  }
+
+  /** Writes the metrics into {@code path}. */
+  void flush(Path path, WorkerGcPolicy gcPolicy) {
+    try {
+      // The temporary file is unique so that it is never clobbered by a concurrent flush, e.g. from
+      // another worker process that was pointed at the same path.
+      Path temporaryPath =
+          Files.createTempFile(
+              path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+      try {
+        Files.write(temporaryPath, toJson(gcPolicy).getBytes(UTF_8));
+        Files.move(
+            temporaryPath,
+            path,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temporaryPath);
+      }
+    } catch (IOException e) {
+      // Stats are best effort, they should never fail the worker; stdout is reserved for the
+      // protocol hence the error goes to the worker log.
+      System.err.println("Could not write worker stats: " + e);
+    }
+  }
+
+  private static String toJsonObject(Map<String, Long> valueByName, boolean nanosToMillis) {
+    List<String> entries = new ArrayList<>();
+    valueByName.forEach(
+        (name, value) ->
+            entries.add(
+                String.format(
+                    Locale.ROOT,
+                    "\"%s\": %d",
+                    J2clUtils.escapeJsonString(name),
+                    nanosToMillis ? TimeUnit.NANOSECONDS.toMillis(value) : value)));
+    return "{" + String.join(", ", entries) + "}";
+  }
+
+  /** Returns the heap currently in use, including garbage that was not collected yet. */
+  private static long getUsedHeapBytes() {
+    MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    return memoryBean.getHeapMemoryUsage().getUsed();
+  }
+
+  private static class CacheCounters {
+    private final LongSupplier hitCount;
+    private final LongSupplier missCount;
+
+    private CacheCounters(LongSupplier hitCount, LongSupplier missCount) {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+/**
+ * Keeps the classpath jars of a long running process open across compilations.
+ *
+ * <p>The JVM shares the central directory of a zip file among all the {@link ZipFile}s that are
+ * open on it at the same time. Retaining an open handle on each jar means that when a frontend
+ * reopens a jar that did not change, e.g. the JRE emulation library, the jar's central directory
+ * is not read from disk again.
+ *
+ * <p>Only the zip handles are retained. JDT still builds its name environment, including its own
+ * index of the packages in each jar, and reads the class files it needs anew in every compilation.
+ * The javac frontend additionally retains its own sessions when this cache is enabled (see {@code
+ * JavacParser}).
+ *
+ * <p>Jars are keyed by their path and the digest of their content, so a jar that changes is
+ * reopened; when more than the maximum number of jars are retained the least recently used ones are
+ * closed.
+ */
+public final class ClasspathEnvironmentCache {
+
+  /** A cache that does not retain anything. */
+  private static final ClasspathEnvironmentCache DISABLED = new ClasspathEnvironmentCache(0);
+
+  public static ClasspathEnvironmentCache create(int maxJars) {
+    return new ClasspathEnvironmentCache(maxJars);
+  }
+
+  public static ClasspathEnvironmentCache disabled() {
+    return DISABLED;
+  }
+
+  private final int maxJars;
+  private final Map<Path, RetainedJar> retainedJarByPath =
+      new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  private ClasspathEnvironmentCache(int maxJars) {
+    this.maxJars = maxJars;
+  }
+
+  /** Returns true if the classpath is retained across compilations. */
+  public boolean isEnabled() {
+    return maxJars > 0;
+  }
+
+  /**
+   * Makes sure the jars in {@code classpathEntries} are retained, reopening the ones whose content
+   * changed since they were last seen.
+   *
+   * <p>Entries that are not jars or cannot be read are ignored here; reporting them is up to the
+   * frontend.
+   */
+  public synchronized void retain(List<String> classpathEntries) {
+    if (maxJars == 0) {
+      return;
+    }
+
+    for (String classpathEntry : classpathEntries) {
+      Path path = Paths.get(classpathEntry).toAbsolutePath().normalize();
+      if (!Files.isRegularFile(path)) {
+        continue;
+      }
+      try {
+        retain(path);
+      } catch (IOException e) {
+        // The frontend will report the entry when it fails to read it.
+      }
+    }
+
+    Iterator<RetainedJar> iterator = retainedJarByPath.values().iterator();
+    while (retainedJarByPath.size() > maxJars) {
+      iterator.next().close();
+      iterator.remove();
+      evictionCount++;
+    }
+  }
+
+  private void retain(Path path) throws IOException {
+    String digest = FileDigests.getDigest(path);
+    RetainedJar retainedJar = retainedJarByPath.get(path);
+    if (retainedJar != null && retainedJar.digest.equals(digest)) {
+      hitCount++;
+      return;
+    }
+
+    missCount++;
+    if (retainedJar != null) {
+      // The jar changed, release the stale contents.
+      retainedJarByPath.remove(path).close();
+    }
+    retainedJarByPath.put(path, new RetainedJar(digest, new ZipFile(path.toFile())));
+  }
+
+  /** Closes all the retained jars. */
+  public synchronized void clear() {
+    retainedJarByPath.values().forEach(RetainedJar::close);
+    retainedJarByPath.clear();
+  }
+
+  /** Returns the number of times a jar was found already retained and unchanged. */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of times a jar had to be opened because it was new or had changed. */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public synchronized int getSize() {
+    return retainedJarByPath.size();
+  }
+
+  private static class RetainedJar {
+    private final String digest;
+    private final ZipFile zipFile;
+
+    private RetainedJar(String digest, ZipFile zipFile) {
+      this.digest = digest;
+      this.zipFile = zipFile;
+    }
+
+    private void close() {
+      try {
+        zipFile.close();
+      } catch (IOException e) {
+        // Nothing can be done, the handle is not used anymore.
+      }
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds the state that is global to a single compilation.
+ *
+ * <p>Global compiler state is kept in {@link ContextLocal}s whose values are looked up in the
+ * context of the current thread. Each thread starts out with its own fresh context, which keeps
+ * compilations that run on different threads isolated from each other.
+ *
+ * <p>Helper threads that perform work on behalf of a compilation can adopt the context of that
+ * compilation by means of {@link #run} or {@link #call}. Values that are reachable from a shared
+ * context need to be safe to use concurrently.
+ *
+ * <p>A thread that runs several compilations, e.g. in a persistent worker, has to run each of them
+ * in a new context. State that is meant to outlive a compilation does not belong in a context; it
+ * is held explicitly, e.g. in a static cache keyed by the content of the inputs it derives from.
+ */
+public final class CompilationContext {
+
+  private static final ThreadLocal<CompilationContext> currentContext =
+      ThreadLocal.withInitial(CompilationContext::new);
+
+  private final Map<ContextLocal<?>, Object> valueByLocal = new ConcurrentHashMap<>();
+
+  /** Returns the context that is in effect in the current thread. */
+  public static CompilationContext current() {
+    return currentContext.get();
+  }
+
+  /** Runs {@code runnable} in the current thread using this context. */
+  public void run(Runnable runnable) {
+    call(
+        () -> {
+          runnable.run();
+          return null;
+        });
+  }
+
+  /** Runs {@code supplier} in the current thread using this context and returns its result. */
+  public <T> T call(Supplier<T> supplier) {
+    CompilationContext previousContext = currentContext.get();
+    currentContext.set(this);
+    try {
+      return supplier.get();
+    } finally {
+      currentContext.set(previousContext);
+    }
+  }
+
+  /** A variable that holds a separate value for each compilation context. */
+  public static final class ContextLocal<T> {
+    private final Supplier<T> initialValueSupplier;
+
+    /** Creates a variable that is unset until a value is explicitly set. */
+    public static <T> ContextLocal<T> create() {
+      return new ContextLocal<>(() -> null);
+    }
+
+    /** Creates a variable whose value is lazily initialized from {@code initialValueSupplier}. */
+    public static <T> ContextLocal<T> withInitial(Supplier<T> initialValueSupplier) {
+      return new ContextLocal<>(checkNotNull(initialValueSupplier));
+    }
+
+    private ContextLocal(Supplier<T> initialValueSupplier) {
+      this.initialValueSupplier = initialValueSupplier;
+    }
+
+    /** Returns the value in the current context or {@code null} if there is none. */
+    @SuppressWarnings("unchecked")
+    public T get() {
+      Map<ContextLocal<?>, Object> valueByLocal = current().valueByLocal;
+      T value = (T) valueByLocal.get(this);
+      if (value != null) {
+        return value;
+      }
+
+      // The initial value is computed outside of the map since computing it might access other
+      // locals in the same context.
+      T initialValue = initialValueSupplier.get();
+      if (initialValue == null) {
+        return null;
+      }
+      T existingValue = (T) valueByLocal.putIfAbsent(this, initialValue);
+      return existingValue != null ? existingValue : initialValue;
+    }
+
+    /** Sets the value in the current context. */
+    public void set(T value) {
+      current().valueByLocal.put(this, checkNotNull(value));
+    }
+
+    /** Removes the value from the current context. */
+    public void remove() {
+      current().valueByLocal.remove(this);
+    }
+  }
+}
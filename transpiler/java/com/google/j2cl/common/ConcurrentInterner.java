@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import com.google.j2cl.common.CompilationContext.ContextLocal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An interner that can be used concurrently and provides per compilation isolation.
+ *
+ * <p>The instances interned by a compilation are shared by all the threads that run within its
+ * {@link CompilationContext} and are released when the context is discarded. Lookups of instances
+ * that are already interned do not lock.
+ */
+public final class ConcurrentInterner<T> {
+
+  /** All the interners, so that their counters can be reported. */
+  private static final List<ConcurrentInterner<?>> interners = new CopyOnWriteArrayList<>();
+
+  /** Returns all the interners that were created. */
+  public static List<ConcurrentInterner<?>> getInterners() {
+    return interners;
+  }
+
+  private final String name;
+  private final ContextLocal<Instances<T>> instances = ContextLocal.withInitial(Instances::new);
+
+  public ConcurrentInterner(String name) {
+    this.name = name;
+    interners.add(this);
+  }
+
+  public T intern(T t) {
+    Instances<T> instances = this.instances.get();
+    T existing = instances.instanceByInstance.get(t);
+    if (existing == null) {
+      existing = instances.instanceByInstance.putIfAbsent(t, t);
+    }
+    if (existing == null) {
+      instances.missCount.increment();
+      return t;
+    }
+    instances.hitCount.increment();
+    return existing;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** Returns the number of lookups that found an interned instance in the current compilation. */
+  public long getHitCount() {
+    return instances.get().hitCount.sum();
+  }
+
+  /** Returns the number of instances that were interned in the current compilation. */
+  public long getMissCount() {
+    return instances.get().missCount.sum();
+  }
+
+  /** Returns the number of distinct instances held for the current compilation. */
+  public int getSize() {
+    return instances.get().instanceByInstance.size();
+  }
+
+  private static class Instances<T> {
+    private final Map<T, T> instanceByInstance = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+  }
+}
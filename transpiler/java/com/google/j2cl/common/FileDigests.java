@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.MoreFiles;
+import com.google.j2cl.common.CompilationContext.ContextLocal;
+import com.google.j2cl.common.FrontendUtils.FileInfo;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+
+/**
+ * Computes content digests of files, remembering them for as long as the files are not modified.
+ *
+ * <p>The digests that the build system already computed for the inputs of a compilation, e.g. the
+ * ones Bazel sends with each worker request, are used as they are (see {@link #useKnownDigests}).
+ * Other files are hashed, and their digests are remembered while their size and modification time
+ * stay the same, which avoids rehashing large inputs like classpath jars in every compilation of a
+ * long running process. Only the digests of the most recently used files are remembered, up to
+ * {@code j2cl.fileDigestCacheMaxEntries} (4096 by default).
+ */
+public final class FileDigests {
+
+  private static final ContextLocal<Map<Path, String>> knownDigestByPath =
+      ContextLocal.withInitial(ImmutableMap::of);
+
+  private static final Cache<Path, CachedDigest> cachedDigestByPath =
+      CacheBuilder.newBuilder()
+          .maximumSize(Integer.getInteger("j2cl.fileDigestCacheMaxEntries", 4096))
+          .build();
+
+  /**
+   * Makes the current compilation use {@code digestByPath}, keyed by absolute path, as the digests
+   * of those files instead of hashing them.
+   */
+  public static void useKnownDigests(Map<Path, String> digestByPath) {
+    knownDigestByPath.set(ImmutableMap.copyOf(digestByPath));
+  }
+
+  /**
+   * Returns the digest of the contents of {@code path}, which is the one known to the current
+   * compilation or else the hex encoded SHA-256 digest of its contents.
+   */
+  public static String getDigest(Path path) throws IOException {
+    Path absolutePath = path.toAbsolutePath().normalize();
+    String knownDigest = knownDigestByPath.get().get(absolutePath);
+    if (knownDigest != null) {
+      return knownDigest;
+    }
+
+    BasicFileAttributes attributes = Files.readAttributes(absolutePath, BasicFileAttributes.class);
+    long size = attributes.size();
+    long lastModifiedMillis = attributes.lastModifiedTime().toMillis();
+
+    CachedDigest cachedDigest = cachedDigestByPath.getIfPresent(absolutePath);
+    if (cachedDigest != null
+        && cachedDigest.size == size
+        && cachedDigest.lastModifiedMillis == lastModifiedMillis) {
+      return cachedDigest.digest;
+    }
+
+    String digest = getDigest(MoreFiles.asByteSource(absolutePath));
+    cachedDigestByPath.put(absolutePath, new CachedDigest(size, lastModifiedMillis, digest));
+    return digest;
+  }
+
+  /** Returns the digest of the contents of {@code fileInfo}, see {@link #getDigest(Path)}. */
+  public static String getDigest(FileInfo fileInfo) throws IOException {
+    return fileInfo.isInMemory()
+        ? getDigest(fileInfo.asByteSource())
+        : getDigest(Paths.get(fileInfo.sourcePath()));
+  }
+
+  /** Returns the hex encoded SHA-256 digest of {@code content}. */
+  public static String getDigest(byte[] content) {
+    return Hashing.sha256().hashBytes(content).toString();
+  }
+
+  /** Returns the hex encoded SHA-256 digest of {@code content}, streaming it through the hash. */
+  private static String getDigest(ByteSource content) throws IOException {
+    return content.hash(Hashing.sha256()).toString();
+  }
+
+  private static class CachedDigest {
+    private final long size;
+    private final long lastModifiedMillis;
+    private final String digest;
+
+    private CachedDigest(long size, long lastModifiedMillis, String digest) {
+      this.size = size;
+      this.lastModifiedMillis = lastModifiedMillis;
+      this.digest = digest;
+    }
+  }
+
+  private FileDigests() {}
+}
@@ -17,36 +17,68 @@ package com.google.j2cl.common;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharSource;
+import com.google.common.io.MoreFiles;
+import com.google.common.primitives.Bytes;
 import com.google.j2cl.common.Problems.FatalError;
-import java.io.File;
 import java.io.IOException;
-import java.net.URI;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
- * This class contains reusable utilities for tools needing to read from zip files and write from
+ * This class contains reusable utilities for tools needing to read their sources, including from
  * zip files. (J2CL proper and the GwtIncompatible stripper)
  */
 public class FrontendUtils {
 
-  /** Stores path of files to be processed. */
+  /**
+   * Stores path of files to be processed.
+   *
+   * <p>Files read from source jars are held in memory; their source path has the form {@code
+   * path/to/sources.srcjar!/path/in/jar} and is only used for diagnostics. Only the javac frontend
+   * compiles them straight from memory; JDT can only parse files on disk and still writes them
+   * out to a scratch directory.
+   */
   @AutoValue
   public abstract static class FileInfo implements Comparable<FileInfo> {
 
+    private static final byte[] GWT_INCOMPATIBLE =
+        "GwtIncompatible".getBytes(StandardCharsets.UTF_8);
+
     public static FileInfo create(String sourcePath, String originalPath) {
       return create(sourcePath, originalPath, originalPath);
     }
 
     public static FileInfo create(String sourcePath, String originalPath, String targetPath) {
-      return new AutoValue_FrontendUtils_FileInfo(sourcePath, originalPath, targetPath);
+      return new AutoValue_FrontendUtils_FileInfo(
+          sourcePath, originalPath, targetPath, Optional.empty(), true);
+    }
+
+    /** Creates a file whose content is held in memory rather than read from its source path. */
+    public static FileInfo createInMemory(String sourcePath, String originalPath, byte[] content) {
+      // The content is searched while it is at hand so that the frontends do not need to read it
+      // again. The name is plain ASCII and hence can be searched for in the UTF-8 bytes directly
+      // without decoding the file.
+      return new AutoValue_FrontendUtils_FileInfo(
+          sourcePath,
+          originalPath,
+          originalPath,
+          Optional.of(ByteSource.wrap(content)),
+          Bytes.indexOf(content, GWT_INCOMPATIBLE) != -1);
     }
 
     public abstract String sourcePath();
@@ -55,50 +87,79 @@ public class FrontendUtils {
 
     public abstract String targetPath();
 
+    /** The content of the file if it is held in memory. */
+    abstract Optional<ByteSource> content();
+
+    /**
+     * Returns false if the text of the file is known not to mention {@code GwtIncompatible}.
+     *
+     * <p>Only the files held in memory are searched, when they are read; the files on disk are
+     * assumed to mention it.
+     */
+    public abstract boolean mightMentionGwtIncompatible();
+
+    /** Returns true if the content of the file does not exist on disk at its source path. */
+    public boolean isInMemory() {
+      return content().isPresent();
+    }
+
+    public ByteSource asByteSource() {
+      return content().orElseGet(() -> MoreFiles.asByteSource(Paths.get(sourcePath())));
+    }
+
+    public CharSource asCharSource() {
+      return asByteSource().asCharSource(StandardCharsets.UTF_8);
+    }
+
     @Override
     public int compareTo(FileInfo o) {
       return targetPath().compareTo(o.targetPath());
     }
   }
 
-  /** Returns all individual sources where source jars extracted and flattened. */
+  /** Returns all individual sources where source jars are read into memory and flattened. */
   public static Stream<FileInfo> getAllSources(List<String> sources, Problems problems) {
-    // Make sure to extract all of the Jars into a single temp dir so that when later sorting
-    // sourceFilePaths there is no instability introduced by differences in randomly generated
-    // temp dir prefixes.
-    Path sourcesDir;
-    try {
-      sourcesDir = Files.createTempDirectory("j2cl_sources");
-    } catch (IOException e) {
-      problems.fatal(FatalError.CANNOT_CREATE_TEMP_DIR, e.getMessage());
-      return null;
+    List<FileInfo> files = new ArrayList<>();
+    // Entries from different jars that have the same path are the same source; the last one wins
+    // as it did when the jars were extracted into a single directory.
+    Map<String, FileInfo> zipEntriesByPath = new LinkedHashMap<>();
+    for (String source : sources) {
+      if (source.endsWith("jar") || source.endsWith("zip")) {
+        for (FileInfo zipEntry : readZip(source, problems)) {
+          zipEntriesByPath.put(zipEntry.originalPath(), zipEntry);
+        }
+      } else {
+        files.add(FileInfo.create(source, source, getJavaPath(source)));
+      }
     }
 
     // Sort source file paths so that our input is always in a stable order. If this is not done
     // and you can't trust the input to have been provided already in a stable order then the result
     // is that you will create an output Foo.js.zip with randomly ordered entries, and this will
     // cause unstable optimization in JSCompiler.
-    return sources
-        .stream()
-        .flatMap(
-            f ->
-                f.endsWith("jar") || f.endsWith("zip")
-                    ? extractZip(f, sourcesDir, problems).stream()
-                    : Stream.of(FileInfo.create(f, f, getJavaPath(f))))
-        .sorted()
-        .distinct();
+    return Stream.concat(files.stream(), zipEntriesByPath.values().stream()).sorted().distinct();
   }
 
-  private static ImmutableList<FileInfo> extractZip(
-      String zipPath, Path sourcesDir, Problems problems) {
-    try {
-      ZipFiles.unzipFile(new File(zipPath), sourcesDir.toFile());
-      try (Stream<Path> stream = Files.walk(sourcesDir)) {
-        return stream
-            .filter(Files::isRegularFile)
-            .map(p -> FileInfo.create(p.toString(), sourcesDir.relativize(p).toString()))
-            .collect(ImmutableList.toImmutableList());
+  private static ImmutableList<FileInfo> readZip(String zipPath, Problems problems) {
+    try (ZipFile zipFile = new ZipFile(zipPath)) {
+      ImmutableList.Builder<FileInfo> zipEntries = ImmutableList.builder();
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        if (entry.isDirectory()) {
+          continue;
+        }
+        // The entry path is used to write outputs, it must not escape the output directory.
+        if (Paths.get(entry.getName()).normalize().startsWith("..")) {
+          throw new IOException("Entry escapes the source root: " + entry.getName());
+        }
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+          zipEntries.add(
+              FileInfo.createInMemory(
+                  zipPath + "!/" + entry.getName(),
+                  entry.getName(),
+                  ByteStreams.toByteArray(inputStream)));
+        }
       }
+      return zipEntries.build();
     } catch (IOException e) {
       problems.fatal(FatalError.CANNOT_EXTRACT_ZIP, zipPath);
       return null;
@@ -130,26 +191,6 @@ public class FrontendUtils {
     return index == -1 ? path.length() : index + rootPath.length();
   }
 
-  public static FileSystem initZipOutput(String output, Problems problems) {
-    Path outputPath = Paths.get(output);
-    if (Files.isDirectory(outputPath)) {
-      problems.fatal(FatalError.OUTPUT_LOCATION, outputPath);
-    }
-
-    // Ensures that we will not fail if the zip already exists.
-    outputPath.toFile().delete();
-    outputPath.toFile().getParentFile().mkdirs();
-
-    try {
-      return FileSystems.newFileSystem(
-          URI.create("jar:" + outputPath.toAbsolutePath().toUri()),
-          ImmutableMap.of("create", "true"));
-    } catch (IOException e) {
-      problems.fatal(FatalError.CANNOT_CREATE_ZIP, outputPath, e.getMessage());
-      return null;
-    }
-  }
-
   public static void checkSourceFiles(List<String> sourceFiles, String... validExtensions) {
     for (String sourceFile : sourceFiles) {
       if (Arrays.stream(validExtensions).noneMatch(x -> sourceFile.endsWith(x))) {
@@ -15,6 +15,7 @@
  */
 package com.google.j2cl.common;
 
+import com.google.j2cl.common.FrontendUtils.FileInfo;
 import com.google.j2cl.common.Problems.FatalError;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -22,6 +23,7 @@ import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.FileTime;
@@ -50,6 +52,11 @@ public class J2clUtils {
     return escapeJavaString(String.valueOf(ch));
   }
 
+  /** Escapes a string into a representation suitable for JSON string literals. */
+  public static String escapeJsonString(String string) {
+    return StringEscapeUtils.escapeJson(string);
+  }
+
   /** Adapts a method that outputs to a stream to directly return the output as a String. */
   public static String streamToString(Consumer<? super PrintStream> streamOutputer) {
     ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
@@ -93,6 +100,19 @@ public class J2clUtils {
     }
   }
 
+  /** Copies a source file, which might only be held in memory, to {@code to}. */
+  public static void copyFile(FileInfo from, Path to, Problems problems) {
+    if (!from.isInMemory()) {
+      copyFile(Paths.get(from.sourcePath()), to, problems);
+      return;
+    }
+    try {
+      writeToFile(to, from.asByteSource().read(), problems);
+    } catch (IOException e) {
+      problems.fatal(FatalError.CANNOT_COPY_FILE, e.toString());
+    }
+  }
+
   private static final boolean DETERMINISTIC_TIMESTAMPS =
       Boolean.getBoolean("j2cl.deterministicTimestamps");
 
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import com.google.j2cl.common.CompilationContext.ContextLocal;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * The line table of a file, in terms of which the {@link SourcePosition}s in that file are packed.
+ *
+ * <p>A position is packed into a single {@code long} that holds its line and column. The byte
+ * offset of the position is recovered from the offset of the start of its line, which the table
+ * learns from the first position it packs in that line, plus a small correction for frontends that
+ * do not report offsets and columns consistently. Positions that do not fit in the packed form are
+ * kept unpacked in the table.
+ *
+ * <p>The file path and the names of the positions are interned in the table, so all the positions
+ * in a file share them.
+ */
+public final class LineTable {
+
+  private static final ContextLocal<Map<String, LineTable>> lineTableByFilePath =
+      ContextLocal.withInitial(ConcurrentHashMap::new);
+
+  /** Returns the line table of the file {@code filePath} in the current compilation. */
+  public static LineTable forFile(@Nullable String filePath) {
+    if (filePath == null) {
+      return create();
+    }
+    return lineTableByFilePath.get().computeIfAbsent(filePath, LineTable::new);
+  }
+
+  /** Returns a new line table for a file that has no path, e.g. an output file. */
+  public static LineTable create() {
+    return new LineTable(null);
+  }
+
+  private static final int LINE_BITS = 24;
+  private static final int COLUMN_BITS = 24;
+  private static final int CORRECTION_BITS = 15;
+  private static final int COLUMN_MASK = (1 << COLUMN_BITS) - 1;
+  private static final int MAX_CORRECTION = (1 << (CORRECTION_BITS - 1)) - 1;
+  private static final int UNKNOWN_LINE_START = Integer.MIN_VALUE;
+
+  @Nullable private final String filePath;
+  @Nullable private String fileName;
+  private int[] lineStartOffsets = new int[0];
+  private final List<FilePosition> unpackedPositions = new ArrayList<>();
+  private final Map<String, String> internedNames = new HashMap<>();
+
+  private LineTable(@Nullable String filePath) {
+    this.filePath = filePath;
+  }
+
+  @Nullable
+  public String getFilePath() {
+    return filePath;
+  }
+
+  @Nullable
+  public synchronized String getFileName() {
+    if (fileName == null && filePath != null) {
+      fileName = new File(filePath).getName();
+    }
+    return fileName;
+  }
+
+  /** Returns the instance of {@code name} shared by all the positions in the file. */
+  @Nullable
+  synchronized String intern(@Nullable String name) {
+    return name == null ? null : internedNames.computeIfAbsent(name, n -> n);
+  }
+
+  /** Packs the position at {@code line} and {@code column} which is at {@code byteOffset}. */
+  synchronized long pack(int line, int column, int byteOffset) {
+    if (line >= 0 && line < (1 << LINE_BITS) && column >= 0 && column <= COLUMN_MASK) {
+      int correction = byteOffset - column - getOrSetLineStart(line, byteOffset - column);
+      if (Math.abs(correction) <= MAX_CORRECTION) {
+        return (long) line << (COLUMN_BITS + CORRECTION_BITS)
+            | (long) column << CORRECTION_BITS
+            | (correction & ((1 << CORRECTION_BITS) - 1));
+      }
+    }
+    unpackedPositions.add(
+        FilePosition.newBuilder()
+            .setLine(line)
+            .setColumn(column)
+            .setByteOffset(byteOffset)
+            .build());
+    // Unpacked positions are encoded as the complement of their index, which is negative.
+    return ~(long) (unpackedPositions.size() - 1);
+  }
+
+  int getLine(long packedPosition) {
+    if (packedPosition < 0) {
+      return getUnpackedPosition(packedPosition).getLine();
+    }
+    return (int) (packedPosition >>> (COLUMN_BITS + CORRECTION_BITS));
+  }
+
+  int getColumn(long packedPosition) {
+    if (packedPosition < 0) {
+      return getUnpackedPosition(packedPosition).getColumn();
+    }
+    return (int) (packedPosition >>> CORRECTION_BITS) & COLUMN_MASK;
+  }
+
+  synchronized int getByteOffset(long packedPosition) {
+    if (packedPosition < 0) {
+      return getUnpackedPosition(packedPosition).getByteOffset();
+    }
+    // Sign extend the correction.
+    int correction = ((int) packedPosition << (32 - CORRECTION_BITS)) >> (32 - CORRECTION_BITS);
+    int line = getLine(packedPosition);
+    return lineStartOffsets[line] + getColumn(packedPosition) + correction;
+  }
+
+  FilePosition toFilePosition(long packedPosition) {
+    if (packedPosition < 0) {
+      return getUnpackedPosition(packedPosition);
+    }
+    return FilePosition.newBuilder()
+        .setLine(getLine(packedPosition))
+        .setColumn(getColumn(packedPosition))
+        .setByteOffset(getByteOffset(packedPosition))
+        .build();
+  }
+
+  private synchronized FilePosition getUnpackedPosition(long packedPosition) {
+    return unpackedPositions.get((int) ~packedPosition);
+  }
+
+  private int getOrSetLineStart(int line, int lineStart) {
+    if (line >= lineStartOffsets.length) {
+      int oldLength = lineStartOffsets.length;
+      lineStartOffsets = Arrays.copyOf(lineStartOffsets, Math.max(line + 1, oldLength * 2));
+      Arrays.fill(lineStartOffsets, oldLength, lineStartOffsets.length, UNKNOWN_LINE_START);
+    }
+    if (lineStartOffsets[line] == UNKNOWN_LINE_START) {
+      lineStartOffsets[line] = lineStart;
+    }
+    return lineStartOffsets[line];
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import com.google.j2cl.common.FrontendUtils.FileInfo;
+import com.google.j2cl.common.Problems.FatalError;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The destination of the files generated by a tool, either a directory or a zip file.
+ *
+ * <p>Files are identified by their path relative to the root of the output. An output can be
+ * written concurrently from multiple threads and needs to be closed once all the files have been
+ * written.
+ */
+public abstract class Output {
+
+  /** How the entries of a zip output are stored. */
+  public enum Compression {
+    /** Entries are deflated, unless that does not make them smaller. */
+    DEFLATED,
+    /** Entries are stored as is, for outputs that are read right away by the next build step. */
+    STORED
+  }
+
+  /** Returns an output that writes the files into {@code directory}. */
+  public static Output toDirectory(Path directory, Problems problems) {
+    if (Files.isRegularFile(directory)) {
+      problems.fatal(FatalError.OUTPUT_LOCATION, directory);
+    }
+    return new DirectoryOutput(directory, problems);
+  }
+
+  /** Returns an output that writes the files into the zip file {@code zipFile} when closed. */
+  public static Output toZip(Path zipFile, Compression compression, Problems problems) {
+    if (Files.isDirectory(zipFile)) {
+      problems.fatal(FatalError.OUTPUT_LOCATION, zipFile);
+    }
+    try {
+      // Ensures that we will not fail if the zip already exists.
+      Files.deleteIfExists(zipFile);
+      Path parent = zipFile.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+    } catch (IOException e) {
+      problems.fatal(FatalError.CANNOT_CREATE_ZIP, zipFile, e.getMessage());
+    }
+    return new ZipOutput(zipFile, compression, problems);
+  }
+
+  final Problems problems;
+
+  Output(Problems problems) {
+    this.problems = problems;
+  }
+
+  /** Writes {@code content} into the file at {@code relativePath}, replacing it if it exists. */
+  public abstract void write(String relativePath, byte[] content);
+
+  /** Writes {@code content} followed by a line separator into the file at {@code relativePath}. */
+  public void write(String relativePath, String content) {
+    write(relativePath, (content + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Copies the source file {@code from} into the file at {@code relativePath}. */
+  public void copyFile(FileInfo from, String relativePath) {
+    try {
+      write(relativePath, from.asByteSource().read());
+    } catch (IOException e) {
+      problems.fatal(FatalError.CANNOT_COPY_FILE, e.toString());
+    }
+  }
+
+  /** Finishes writing the output; no files can be written afterwards. */
+  public abstract void close();
+
+  /** An output that writes the files into a directory as they come. */
+  private static final class DirectoryOutput extends Output {
+    private final Path root;
+
+    private DirectoryOutput(Path root, Problems problems) {
+      super(problems);
+      this.root = root;
+    }
+
+    @Override
+    public void write(String relativePath, byte[] content) {
+      J2clUtils.writeToFile(root.resolve(relativePath), content, problems);
+    }
+
+    @Override
+    public void copyFile(FileInfo from, String relativePath) {
+      J2clUtils.copyFile(from, root.resolve(relativePath), problems);
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Records the wall time, cpu time and allocated bytes of the different stages of a compilation.
+ *
+ * <p>Measurements are aggregated by category and name, e.g. all the applications of a
+ * normalization pass to the different compilation units are reported as a single entry. The
+ * profiler can be used concurrently from multiple threads; cpu time and allocations are measured on
+ * the thread that runs the stage.
+ */
+public final class Profiler {
+
+  /** A profiler that does not record anything. */
+  private static final Profiler DISABLED = new Profiler(false);
+
+  public static Profiler create() {
+    return new Profiler(true);
+  }
+
+  public static Profiler disabled() {
+    return DISABLED;
+  }
+
+  /** A running measurement. */
+  public interface Timer extends AutoCloseable {
+    /** Ends the measurement and records it. */
+    @Override
+    void close();
+  }
+
+  private static final Timer NO_OP_TIMER = () -> {};
+
+  private final boolean enabled;
+  private final Map<String, Stats> statsByKey = new LinkedHashMap<>();
+  private final Map<String, Long> countByName = new LinkedHashMap<>();
+  private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+  private Profiler(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Starts measuring a stage, which ends when the returned timer is closed. */
+  public Timer start(String category, String name) {
+    if (!enabled) {
+      return NO_OP_TIMER;
+    }
+
+    long startWallNanos = System.nanoTime();
+    long startCpuNanos = getCurrentThreadCpuTime();
+    long startAllocatedBytes = getCurrentThreadAllocatedBytes();
+    return () ->
+        record(
+            category,
+            name,
+            System.nanoTime() - startWallNanos,
+            getCurrentThreadCpuTime() - startCpuNanos,
+            getCurrentThreadAllocatedBytes() - startAllocatedBytes);
+  }
+
+  /** Runs {@code runnable} measuring it as the stage {@code name}. */
+  public void profile(String category, String name, Runnable runnable) {
+    try (Timer timer = start(category, name)) {
+      runnable.run();
+    }
+  }
+
+  /** Runs {@code supplier} measuring it as the stage {@code name}. */
+  public <T> T profile(String category, String name, Supplier<T> supplier) {
+    try (Timer timer = start(category, name)) {
+      return supplier.get();
+    }
+  }
+
+  /** Adds {@code delta} to the counter {@code name}, e.g. the number of units compiled. */
+  public void count(String name, long delta) {
+    if (!enabled) {
+      return;
+    }
+    synchronized (this) {
+      countByName.merge(name, delta, Long::sum);
+    }
+  }
+
+  /** Returns the total wall time of the stages of each category, in the order first seen. */
+  public synchronized Map<String, Long> getWallNanosByCategory() {
+    Map<String, Long> wallNanosByCategory = new LinkedHashMap<>();
+    for (Stats stats : statsByKey.values()) {
+      wallNanosByCategory.merge(stats.category, stats.wallNanos, Long::sum);
+    }
+    return wallNanosByCategory;
+  }
+
+  /** Returns the value of each counter, in the order first seen. */
+  public synchronized Map<String, Long> getCounts() {
+    return new LinkedHashMap<>(countByName);
+  }
+
+  private synchronized void record(
+      String category, String name, long wallNanos, long cpuNanos, long allocatedBytes) {
+    statsByKey
+        .computeIfAbsent(category + ":" + name, k -> new Stats(category, name))
+        .add(wallNanos, cpuNanos, allocatedBytes);
+  }
+
+  /**
+   * Returns the profile as a JSON document.
+   *
+   * <p>Stages are listed in the order they were first seen. Cpu time and allocated bytes are
+   * reported as -1 if the JVM does not support measuring them.
+   */
+  public synchronized String toJson() {
+    List<String> entries = new ArrayList<>();
+    for (Stats stats : statsByKey.values()) {
+      entries.add(
+          String.format(
+              Locale.ROOT,
+              "    {\"category\": \"%s\", \"name\": \"%s\", \"count\": %d, \"wallNanos\": %d, "
+                  + "\"cpuNanos\": %d, \"allocatedBytes\": %d}",
+              J2clUtils.escapeJsonString(stats.category),
+              J2clUtils.escapeJsonString(stats.name),
+              stats.count,
+              stats.wallNanos,
+              isCpuTimeSupported() ? stats.cpuNanos : -1,
+              isAllocatedBytesSupported() ? stats.allocatedBytes : -1));
+    }
+    List<String> counters = new ArrayList<>();
+    for (Map.Entry<String, Long> entry : countByName.entrySet()) {
+      counters.add(
+          String.format(
+              Locale.ROOT,
+              "    \"%s\": %d",
+              J2clUtils.escapeJsonString(entry.getKey()),
+              entry.getValue()));
+    }
+    return "{\n  \"stages\": [\n"
+        + String.join(",\n", entries)
+        + "\n  ],\n  \"counters\": {\n"
+        + String.join(",\n", counters)
+        + "\n  }\n}";
+  }
+
+  /** Writes the profile as JSON into {@code outputPath}. */
+  public void writeTo(Path outputPath, Problems problems) {
+    J2clUtils.writeToFile(outputPath, toJson(), problems);
+  }
+
+  private boolean isCpuTimeSupported() {
+    return threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+  }
+
+  private long getCurrentThreadCpuTime() {
+    return isCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : 0;
+  }
+
+  private boolean isAllocatedBytesSupported() {
+    return threadMXBean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+        && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled();
+  }
+
+  private long getCurrentThreadAllocatedBytes() {
+    return isAllocatedBytesSupported()
+        ? ((com.sun.management.ThreadMXBean) threadMXBean)
+            .getThreadAllocatedBytes(Thread.currentThread().getId())
+        : 0;
+  }
+
+  /** The aggregated measurements of a stage. */
+  private static class Stats {
+    private final String category;
+    private final String name;
+    private int count;
+    private long wallNanos;
+    private long cpuNanos;
+    private long allocatedBytes;
+
+    private Stats(String category, String name) {
+      this.category = category;
+      this.name = name;
+    }
+
+    private void add(long wallNanos, long cpuNanos, long allocatedBytes) {
+      this.count++;
+      this.wallNanos += wallNanos;
+      this.cpuNanos += cpuNanos;
+      this.allocatedBytes += allocatedBytes;
+    }
+  }
+}
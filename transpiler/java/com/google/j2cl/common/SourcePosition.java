@@ -15,25 +15,48 @@
  */
 package com.google.j2cl.common;
 
-import com.google.auto.value.AutoValue;
-import com.google.auto.value.extension.memoized.Memoized;
-import java.io.File;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Objects;
 import javax.annotation.Nullable;
 
 /**
  * Describes the location of a node in the original source in the form of a range
  * (line,column)-(line,column); where both line and column are zero-based.
+ *
+ * <p>The start and end are stored packed in terms of the {@link LineTable} of the file, the file
+ * positions returned by {@link #getStartFilePosition} and {@link #getEndFilePosition} are views
+ * created on demand.
  */
-@AutoValue
-public abstract class SourcePosition implements Comparable<SourcePosition> {
+public final class SourcePosition implements Comparable<SourcePosition> {
+
+  private final LineTable lineTable;
+  private final long start;
+  private final long end;
+  @Nullable private final String name;
+
+  private SourcePosition(LineTable lineTable, long start, long end, @Nullable String name) {
+    this.lineTable = lineTable;
+    this.start = start;
+    this.end = end;
+    this.name = name;
+  }
 
-  public abstract FilePosition getStartFilePosition();
+  public FilePosition getStartFilePosition() {
+    return lineTable.toFilePosition(start);
+  }
 
-  public abstract FilePosition getEndFilePosition();
+  public FilePosition getEndFilePosition() {
+    return lineTable.toFilePosition(end);
+  }
 
-  public abstract @Nullable String getFilePath();
+  public @Nullable String getFilePath() {
+    return lineTable.getFilePath();
+  }
 
-  public abstract @Nullable String getName();
+  public @Nullable String getName() {
+    return name;
+  }
 
   @Override
   public int compareTo(SourcePosition o) {
@@ -43,38 +66,163 @@ public abstract class SourcePosition implements Comparable<SourcePosition> {
         return pathComparisonResult;
       }
     }
-    if (getStartFilePosition().getLine() == o.getStartFilePosition().getLine()) {
-      return getStartFilePosition().getColumn() - o.getStartFilePosition().getColumn();
+    int startLine = lineTable.getLine(start);
+    int otherStartLine = o.lineTable.getLine(o.start);
+    if (startLine == otherStartLine) {
+      return lineTable.getColumn(start) - o.lineTable.getColumn(o.start);
     }
-    return getStartFilePosition().getLine() - o.getStartFilePosition().getLine();
+    return startLine - otherStartLine;
   }
 
-  @Memoized
   @Nullable
   public String getFileName() {
-    String filePath = getFilePath();
-    return filePath == null ? filePath : new File(filePath).getName();
+    return lineTable.getFileName();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof SourcePosition)) {
+      return false;
+    }
+    SourcePosition that = (SourcePosition) o;
+    return Objects.equals(getFilePath(), that.getFilePath())
+        && Objects.equals(name, that.name)
+        && isSamePosition(start, that, that.start)
+        && isSamePosition(end, that, that.end);
   }
 
-  abstract Builder toBuilder();
+  private boolean isSamePosition(long position, SourcePosition that, long thatPosition) {
+    boolean result =
+        lineTable.getLine(position) == that.lineTable.getLine(thatPosition)
+            && lineTable.getColumn(position) == that.lineTable.getColumn(thatPosition);
+    checkState(
+        result
+            == (lineTable.getByteOffset(position) == that.lineTable.getByteOffset(thatPosition)),
+        "Line/column position does not match byte offset.");
+    return result;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        getFilePath(),
+        name,
+        lineTable.getLine(start),
+        lineTable.getColumn(start),
+        lineTable.getLine(end),
+        lineTable.getColumn(end));
+  }
+
+  @Override
+  public String toString() {
+    return "SourcePosition{startFilePosition="
+        + getStartFilePosition()
+        + ", endFilePosition="
+        + getEndFilePosition()
+        + ", filePath="
+        + getFilePath()
+        + ", name="
+        + name
+        + "}";
+  }
+
+  Builder toBuilder() {
+    Builder builder =
+        new Builder()
+            .setLineTable(lineTable)
+            .setStartFilePosition(
+                lineTable.getLine(start),
+                lineTable.getColumn(start),
+                lineTable.getByteOffset(start))
+            .setEndFilePosition(
+                lineTable.getLine(end), lineTable.getColumn(end), lineTable.getByteOffset(end));
+    builder.name = name;
+    return builder;
+  }
 
   public static Builder newBuilder() {
-    return new AutoValue_SourcePosition.Builder();
+    return new Builder();
   }
 
   /** A Builder for SourcePosition. */
-  @AutoValue.Builder
-  public abstract static class Builder {
+  public static final class Builder {
+    private LineTable lineTable;
+    private String filePath;
+    private String name;
+    private boolean hasStart;
+    private int startLine;
+    private int startColumn;
+    private int startByteOffset;
+    private boolean hasEnd;
+    private int endLine;
+    private int endColumn;
+    private int endByteOffset;
+
+    private Builder() {}
+
+    public Builder setStartFilePosition(FilePosition filePosition) {
+      return setStartFilePosition(
+          filePosition.getLine(), filePosition.getColumn(), filePosition.getByteOffset());
+    }
 
-    public abstract Builder setStartFilePosition(FilePosition filePosition);
+    /** Sets the start position without creating a {@link FilePosition}. */
+    public Builder setStartFilePosition(int line, int column, int byteOffset) {
+      this.hasStart = true;
+      this.startLine = line;
+      this.startColumn = column;
+      this.startByteOffset = byteOffset;
+      return this;
+    }
 
-    public abstract Builder setEndFilePosition(FilePosition filePosition);
+    public Builder setEndFilePosition(FilePosition filePosition) {
+      return setEndFilePosition(
+          filePosition.getLine(), filePosition.getColumn(), filePosition.getByteOffset());
+    }
 
-    public abstract Builder setFilePath(String filePath);
+    /** Sets the end position without creating a {@link FilePosition}. */
+    public Builder setEndFilePosition(int line, int column, int byteOffset) {
+      this.hasEnd = true;
+      this.endLine = line;
+      this.endColumn = column;
+      this.endByteOffset = byteOffset;
+      return this;
+    }
+
+    public Builder setFilePath(String filePath) {
+      this.lineTable = null;
+      this.filePath = filePath;
+      return this;
+    }
 
-    public abstract Builder setName(String name);
+    /**
+     * Sets the line table of the file, which also determines the file path.
+     *
+     * <p>Callers that create many positions in the same file can look up the table once with
+     * {@link LineTable#forFile} instead of setting the file path of each position.
+     */
+    public Builder setLineTable(LineTable lineTable) {
+      this.lineTable = lineTable;
+      this.filePath = lineTable.getFilePath();
+      return this;
+    }
 
-    public abstract SourcePosition build();
+    public Builder setName(String name) {
+      this.name = name;
+      return this;
+    }
+
+    public SourcePosition build() {
+      checkState(hasStart && hasEnd, "Missing required properties: start or end file position");
+      LineTable lineTable = this.lineTable != null ? this.lineTable : LineTable.forFile(filePath);
+      return new SourcePosition(
+          lineTable,
+          lineTable.pack(startLine, startColumn, startByteOffset),
+          lineTable.pack(endLine, endColumn, endByteOffset),
+          lineTable.intern(name));
+    }
 
     public static Builder from(SourcePosition sourcePosition) {
       return sourcePosition.toBuilder();
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import com.google.j2cl.common.CompilationContext.ContextLocal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the strings that a compilation uses as symbols, e.g. method signatures and mangled names,
+ * and assigns them dense integer ids.
+ *
+ * <p>Interned symbols can be compared by identity and ids can be used as keys of hot lookups
+ * instead of the strings. Ids are only meaningful within the compilation that assigned them, which
+ * is fine for the ids memoized by descriptors since descriptors do not outlive their compilation.
+ * The table can be used concurrently; lookups of symbols that are already interned do not lock.
+ */
+public final class SymbolTable {
+
+  private static final ContextLocal<SymbolTable> symbolTable =
+      ContextLocal.withInitial(SymbolTable::new);
+
+  /** Returns the symbol table of the current compilation. */
+  public static SymbolTable get() {
+    return symbolTable.get();
+  }
+
+  private final Map<String, Symbol> symbolByName = new ConcurrentHashMap<>();
+  private final List<String> nameById = new ArrayList<>();
+
+  private SymbolTable() {}
+
+  /** Returns the interned instance of {@code name}. */
+  public String intern(String name) {
+    return getSymbol(name).name;
+  }
+
+  /** Returns the id of {@code name}, interning it if needed. */
+  public int getId(String name) {
+    return getSymbol(name).id;
+  }
+
+  /** Returns the symbol with id {@code id}. */
+  public synchronized String getName(int id) {
+    checkElementIndex(id, nameById.size());
+    return nameById.get(id);
+  }
+
+  /** Returns the number of symbols interned in the compilation. */
+  public synchronized int size() {
+    return nameById.size();
+  }
+
+  private Symbol getSymbol(String name) {
+    Symbol symbol = symbolByName.get(name);
+    if (symbol != null) {
+      return symbol;
+    }
+    synchronized (this) {
+      return symbolByName.computeIfAbsent(
+          name,
+          n -> {
+            nameById.add(n);
+            return new Symbol(nameById.size() - 1, n);
+          });
+    }
+  }
+
+  private static final class Symbol {
+    private final int id;
+    private final String name;
+
+    private Symbol(int id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.j2cl.common.Problems.FatalError;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An output that writes the files into a zip file.
+ *
+ * <p>Entries are compressed in parallel, on threads owned by the output, as soon as they are
+ * written and kept in memory until the output is closed. The zip is then written in a single pass
+ * with the entries sorted by path and with a fixed timestamp, so that it only depends on the
+ * contents of the files.
+ */
+final class ZipOutput extends Output {
+
+  private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+
+  private static final int VERSION = 20;
+  private static final int ZIP64_VERSION = 45;
+  /** Marks the entry names as UTF-8. */
+  private static final int FLAGS = 0x0800;
+  private static final int METHOD_STORED = 0;
+  private static final int METHOD_DEFLATED = 8;
+  /** 1980-01-01 00:00, the earliest time that can be represented in a zip. */
+  private static final int DOS_DATE = (1 << 5) | 1;
+  private static final int DOS_TIME = 0;
+
+  private static final long MAX_UINT16 = 0xffffL;
+  private static final long MAX_UINT32 = 0xffffffffL;
+
+  private final Path zipFile;
+  private final Compression compression;
+  private final Map<String, Future<Entry>> entryByPath = new ConcurrentHashMap<>();
+  /**
+   * Compresses the entries. The threads are not shared with other outputs, which might belong to
+   * other compilations running concurrently in the same process, and are released on close.
+   */
+  private final ExecutorService compressionExecutor =
+      Executors.newFixedThreadPool(
+          Runtime.getRuntime().availableProcessors(),
+          runnable -> {
+            Thread thread = new Thread(runnable, "j2cl-zip-output");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  ZipOutput(Path zipFile, Compression compression, Problems problems) {
+    super(problems);
+    this.zipFile = zipFile;
+    this.compression = compression;
+  }
+
+  @Override
+  public void write(String relativePath, byte[] content) {
+    String path = relativePath.startsWith("/") ? relativePath.substring(1) : relativePath;
+    entryByPath.put(path, compressionExecutor.submit(() -> createEntry(content)));
+  }
+
+  @Override
+  public void close() {
+    List<String> paths = new ArrayList<>(entryByPath.keySet());
+    Collections.sort(paths);
+
+    try (CountingOutputStream out =
+        new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(zipFile)))) {
+      ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+      for (String path : paths) {
+        Entry entry = Uninterruptibles.getUninterruptibly(entryByPath.get(path));
+        byte[] name = path.getBytes(StandardCharsets.UTF_8);
+        long offset = out.getCount();
+        writeLocalFileHeader(out, name, entry);
+        out.write(entry.data);
+        writeCentralDirectoryHeader(centralDirectory, name, entry, offset);
+      }
+      long centralDirectoryOffset = out.getCount();
+      centralDirectory.writeTo(out);
+      writeEndOfCentralDirectory(
+          out, paths.size(), centralDirectory.size(), centralDirectoryOffset);
+    } catch (IOException | ExecutionException e) {
+      problems.fatal(FatalError.CANNOT_CLOSE_ZIP, e.getMessage());
+    } finally {
+      entryByPath.clear();
+      compressionExecutor.shutdownNow();
+    }
+  }
+
+  private Entry createEntry(byte[] content) {
+    CRC32 crc = new CRC32();
+    crc.update(content);
+    if (compression == Compression.DEFLATED) {
+      byte[] deflatedContent = deflate(content);
+      if (deflatedContent.length < content.length) {
+        return new Entry(METHOD_DEFLATED, crc.getValue(), content.length, deflatedContent);
+      }
+    }
+    return new Entry(METHOD_STORED, crc.getValue(), content.length, content);
+  }
+
+  private static byte[] deflate(byte[] content) {
+    // Zip entries contain raw deflate data, without the zlib header and checksum.
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, /* nowrap= */ true);
+    try {
+      deflater.setInput(content);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 64);
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static void writeLocalFileHeader(OutputStream out, byte[] name, Entry entry)
+      throws IOException {
+    writeInt(out, LOCAL_FILE_HEADER_SIGNATURE);
+    writeShort(out, VERSION);
+    writeShort(out, FLAGS);
+    writeShort(out, entry.method);
+    writeShort(out, DOS_TIME);
+    writeShort(out, DOS_DATE);
+    writeInt(out, entry.crc);
+    // Entries are held in byte arrays, their sizes always fit in 32 bits.
+    writeInt(out, entry.data.length);
+    writeInt(out, entry.size);
+    writeShort(out, name.length);
+    writeShort(out, 0);
+    out.write(name);
+  }
+
+  private static void writeCentralDirectoryHeader(
+      OutputStream out, byte[] name, Entry entry, long offset) throws IOException {
+    // Only the offset of an entry can exceed 32 bits, in which case it is recorded in a zip64
+    // extra field.
+    boolean isZip64 = offset >= MAX_UINT32;
+    writeInt(out, CENTRAL_DIRECTORY_HEADER_SIGNATURE);
+    writeShort(out, isZip64 ? ZIP64_VERSION : VERSION);
+    writeShort(out, isZip64 ? ZIP64_VERSION : VERSION);
+    writeShort(out, FLAGS);
+    writeShort(out, entry.method);
+    writeShort(out, DOS_TIME);
+    writeShort(out, DOS_DATE);
+    writeInt(out, entry.crc);
+    writeInt(out, entry.data.length);
+    writeInt(out, entry.size);
+    writeShort(out, name.length);
+    writeShort(out, isZip64 ? 12 : 0);
+    writeShort(out, 0); // comment length
+    writeShort(out, 0); // disk number
+    writeShort(out, 0); // internal attributes
+    writeInt(out, 0); // external attributes
+    writeInt(out, isZip64 ? MAX_UINT32 : offset);
+    out.write(name);
+    if (isZip64) {
+      writeShort(out, ZIP64_EXTRA_FIELD_ID);
+      writeShort(out, 8);
+      writeLong(out, offset);
+    }
+  }
+
+  private static void writeEndOfCentralDirectory(
+      CountingOutputStream out, long entryCount, long size, long offset) throws IOException {
+    boolean isZip64 = entryCount >= MAX_UINT16 || size >= MAX_UINT32 || offset >= MAX_UINT32;
+    if (isZip64) {
+      long zip64EndOffset = out.getCount();
+      writeInt(out, ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+      writeLong(out, 44); // size of the remaining record
+      writeShort(out, ZIP64_VERSION);
+      writeShort(out, ZIP64_VERSION);
+      writeInt(out, 0); // disk number
+      writeInt(out, 0); // disk with the central directory
+      writeLong(out, entryCount);
+      writeLong(out, entryCount);
+      writeLong(out, size);
+      writeLong(out, offset);
+
+      writeInt(out, ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE);
+      writeInt(out, 0); // disk with the zip64 end of central directory
+      writeLong(out, zip64EndOffset);
+      writeInt(out, 1); // number of disks
+    }
+
+    writeInt(out, END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+    writeShort(out, 0); // disk number
+    writeShort(out, 0); // disk with the central directory
+    writeShort(out, (int) Math.min(entryCount, MAX_UINT16));
+    writeShort(out, (int) Math.min(entryCount, MAX_UINT16));
+    writeInt(out, Math.min(size, MAX_UINT32));
+    writeInt(out, Math.min(offset, MAX_UINT32));
+    writeShort(out, 0); // comment length
+  }
+
+  private static void writeShort(OutputStream out, int value) throws IOException {
+    out.write(value & 0xff);
+    out.write((value >>> 8) & 0xff);
+  }
+
+  private static void writeInt(OutputStream out, long value) throws IOException {
+    writeShort(out, (int) value);
+    writeShort(out, (int) (value >>> 16));
+  }
+
+  private static void writeLong(OutputStream out, long value) throws IOException {
+    writeInt(out, value);
+    writeInt(out, value >>> 32);
+  }
+
+  /** A zip entry whose content has already been compressed. */
+  private static final class Entry {
+    private final int method;
+    private final long crc;
+    private final long size;
+    private final byte[] data;
+
+    private Entry(int method, long crc, long size, byte[] data) {
+      this.method = method;
+      this.crc = crc;
+      this.size = size;
+      this.data = data;
+    }
+  }
+}
@@ -16,6 +16,7 @@
 package com.google.j2cl.frontend;
 
 import com.google.j2cl.ast.CompilationUnit;
+import com.google.j2cl.common.ClasspathEnvironmentCache;
 import com.google.j2cl.common.FrontendUtils.FileInfo;
 import com.google.j2cl.common.Problems;
 import com.google.j2cl.frontend.common.PackageInfoCache;
@@ -33,9 +34,17 @@ public enum Frontend {
         List<String> classPath,
         List<FileInfo> sources,
         boolean useTargetClassPath,
+        boolean checkGwtIncompatible,
+        ClasspathEnvironmentCache classpathEnvironmentCache,
         Problems problems) {
       CompilationUnitsAndTypeBindings jdtUnitsAndResolvedBindings =
-          createJdtUnitsAndResolveBindings(classPath, sources, useTargetClassPath, problems);
+          createJdtUnitsAndResolveBindings(
+              classPath,
+              sources,
+              useTargetClassPath,
+              checkGwtIncompatible,
+              classpathEnvironmentCache,
+              problems);
       return convertUnits(jdtUnitsAndResolvedBindings, classPath, problems);
     }
 
@@ -51,8 +60,11 @@ public enum Frontend {
         List<String> classPath,
         List<FileInfo> sources,
         boolean useTargetClassPath,
+        boolean checkGwtIncompatible,
+        ClasspathEnvironmentCache classpathEnvironmentCache,
         Problems problems) {
-      JdtParser parser = new JdtParser(classPath, problems);
+      JdtParser parser =
+          new JdtParser(classPath, classpathEnvironmentCache, checkGwtIncompatible, problems);
       CompilationUnitsAndTypeBindings compilationUnitsAndTypeBindings =
           parser.parseFiles(sources, useTargetClassPath);
       problems.abortIfHasErrors();
@@ -65,18 +77,42 @@ public enum Frontend {
         List<String> classPath,
         List<FileInfo> sources,
         boolean useTargetClassPath,
+        boolean checkGwtIncompatible,
+        ClasspathEnvironmentCache classpathEnvironmentCache,
         Problems problems) {
       init(classPath, problems);
-      return new JavacParser(classPath, problems).parseFiles(sources, useTargetClassPath);
+      return new JavacParser(classPath, classpathEnvironmentCache, checkGwtIncompatible, problems)
+          .parseFiles(sources, useTargetClassPath);
+    }
+
+    @Override
+    public void finishCompilation() {
+      JavacParser.finishCompilation();
     }
   };
 
+  /**
+   * Returns the compilation units for {@code sources}.
+   *
+   * <p>Sources are rejected if they have {@code GwtIncompatible} members unless {@code
+   * checkGwtIncompatible} is false, which is meant for sources that already went through the
+   * stripper.
+   */
   public abstract List<CompilationUnit> getCompilationUnits(
       List<String> classPath,
       List<FileInfo> sources,
       boolean useTargetClassPath,
+      boolean checkGwtIncompatible,
+      ClasspathEnvironmentCache classpathEnvironmentCache,
       Problems problems);
 
+  /**
+   * Releases the state that the frontend holds for the current compilation. Called once the
+   * compilation is done with the compilation units, whose descriptors might complete lazily from
+   * that state until then.
+   */
+  public void finishCompilation() {}
+
   private static void init(List<String> classPath, Problems problems) {
     // Records information about package-info files supplied as byte code.
     PackageInfoCache.init(classPath, problems);
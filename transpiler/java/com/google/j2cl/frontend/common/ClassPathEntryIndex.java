@@ -0,0 +1,296 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.frontend.common;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.j2cl.common.Problems;
+import com.google.j2cl.common.Problems.FatalError;
+import com.google.j2cl.frontend.common.PackageInfoCache.PackageReport;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.annotation.Nullable;
+import jsinterop.annotations.JsPackage;
+
+/**
+ * An index of the class files in a class path entry and of the package-info classes among them.
+ *
+ * <p>The index is built by reading the entry once, parsing the package-info class files directly
+ * instead of loading them. It only depends on the contents of the entry.
+ */
+final class ClassPathEntryIndex {
+
+  private static final String PACKAGE_INFO_CLASS_FILE_NAME = "package-info.class";
+  private static final String JS_PACKAGE_DESCRIPTOR =
+      "L" + JsPackage.class.getName().replace('.', '/') + ";";
+
+  static final ClassPathEntryIndex EMPTY =
+      new ClassPathEntryIndex(ImmutableSet.of(), ImmutableMap.of());
+
+  /** Indexes the jar file or the class directory at {@code path}. */
+  static ClassPathEntryIndex create(Path path, Problems problems) throws IOException {
+    if (Files.isDirectory(path)) {
+      return createForDirectory(path, problems);
+    }
+    if (Files.isRegularFile(path)) {
+      return createForJar(path, problems);
+    }
+    return EMPTY;
+  }
+
+  private static ClassPathEntryIndex createForJar(Path jarPath, Problems problems)
+      throws IOException {
+    ImmutableSet.Builder<String> classFilePaths = ImmutableSet.builder();
+    Map<String, PackageReport> packageReportByPackagePath = new HashMap<>();
+    try (ZipFile zipFile = new ZipFile(jarPath.toFile())) {
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        String name = entry.getName();
+        if (!name.endsWith(".class")) {
+          continue;
+        }
+        classFilePaths.add(name);
+        if (isPackageInfo(name)) {
+          try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            byte[] classFile = ByteStreams.toByteArray(inputStream);
+            packageReportByPackagePath.put(
+                getPackagePath(name),
+                readPackageReport(jarPath + "!/" + name, classFile, problems));
+          }
+        }
+      }
+    }
+    return new ClassPathEntryIndex(
+        classFilePaths.build(), ImmutableMap.copyOf(packageReportByPackagePath));
+  }
+
+  private static ClassPathEntryIndex createForDirectory(Path directory, Problems problems)
+      throws IOException {
+    ImmutableSet.Builder<String> classFilePaths = ImmutableSet.builder();
+    Map<String, PackageReport> packageReportByPackagePath = new HashMap<>();
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths::iterator) {
+        String name = directory.relativize(path).toString().replace('\\', '/');
+        if (!name.endsWith(".class") || !Files.isRegularFile(path)) {
+          continue;
+        }
+        classFilePaths.add(name);
+        if (isPackageInfo(name)) {
+          packageReportByPackagePath.put(
+              getPackagePath(name),
+              readPackageReport(path.toString(), Files.readAllBytes(path), problems));
+        }
+      }
+    }
+    return new ClassPathEntryIndex(
+        classFilePaths.build(), ImmutableMap.copyOf(packageReportByPackagePath));
+  }
+
+  private final ImmutableSet<String> classFilePaths;
+  private final ImmutableMap<String, PackageReport> packageReportByPackagePath;
+
+  private ClassPathEntryIndex(
+      ImmutableSet<String> classFilePaths,
+      ImmutableMap<String, PackageReport> packageReportByPackagePath) {
+    this.classFilePaths = classFilePaths;
+    this.packageReportByPackagePath = packageReportByPackagePath;
+  }
+
+  /** Returns true if the entry contains the class file of {@code binaryName}. */
+  boolean containsType(String binaryName) {
+    return classFilePaths.contains(binaryName.replace('.', '/') + ".class");
+  }
+
+  /**
+   * Returns the report of the package from its package-info class or {@code null} if the entry
+   * does not have a package-info class for it.
+   */
+  @Nullable
+  PackageReport getPackageReport(String packagePath) {
+    return packageReportByPackagePath.get(packagePath);
+  }
+
+  private static boolean isPackageInfo(String classFilePath) {
+    return classFilePath.equals(PACKAGE_INFO_CLASS_FILE_NAME)
+        || classFilePath.endsWith("/" + PACKAGE_INFO_CLASS_FILE_NAME);
+  }
+
+  private static String getPackagePath(String packageInfoClassFilePath) {
+    int lastSlashIndex = packageInfoClassFilePath.lastIndexOf('/');
+    return lastSlashIndex == -1
+        ? ""
+        : packageInfoClassFilePath.substring(0, lastSlashIndex).replace('/', '.');
+  }
+
+  private static PackageReport readPackageReport(
+      String classFilePath, byte[] classFile, Problems problems) {
+    try {
+      return PackageReport.newBuilder().setJsNamespace(readJsPackageNamespace(classFile)).build();
+    } catch (IOException | RuntimeException e) {
+      problems.fatal(FatalError.PACKAGE_INFO_PARSE, classFilePath);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the namespace of the {@code JsPackage} annotation of a package-info class file, or
+   * {@code null} if there is none.
+   */
+  @Nullable
+  private static String readJsPackageNamespace(byte[] classFile) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+    if (in.readInt() != 0xCAFEBABE) {
+      throw new IOException("Not a class file");
+    }
+    in.readUnsignedShort(); // minor version
+    in.readUnsignedShort(); // major version
+
+    // Only the strings of the constant pool are needed to read annotations.
+    int constantPoolCount = in.readUnsignedShort();
+    String[] utf8Constants = new String[constantPoolCount];
+    for (int i = 1; i < constantPoolCount; i++) {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+        case 1: // Utf8
+          utf8Constants[i] = in.readUTF();
+          break;
+        case 7: // Class
+        case 8: // String
+        case 16: // MethodType
+        case 19: // Module
+        case 20: // Package
+          in.skipBytes(2);
+          break;
+        case 15: // MethodHandle
+          in.skipBytes(3);
+          break;
+        case 3: // Integer
+        case 4: // Float
+        case 9: // Fieldref
+        case 10: // Methodref
+        case 11: // InterfaceMethodref
+        case 12: // NameAndType
+        case 17: // Dynamic
+        case 18: // InvokeDynamic
+          in.skipBytes(4);
+          break;
+        case 5: // Long
+        case 6: // Double
+          in.skipBytes(8);
+          // These constants take two entries in the constant pool.
+          i++;
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+
+    in.readUnsignedShort(); // access flags
+    in.readUnsignedShort(); // this class
+    in.readUnsignedShort(); // super class
+    in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+    skipMembers(in); // fields
+    skipMembers(in); // methods
+
+    int attributeCount = in.readUnsignedShort();
+    for (int i = 0; i < attributeCount; i++) {
+      String attributeName = utf8Constants[in.readUnsignedShort()];
+      int attributeLength = in.readInt();
+      if (!"RuntimeVisibleAnnotations".equals(attributeName)
+          && !"RuntimeInvisibleAnnotations".equals(attributeName)) {
+        in.skipBytes(attributeLength);
+        continue;
+      }
+      int annotationCount = in.readUnsignedShort();
+      for (int j = 0; j < annotationCount; j++) {
+        String namespace = readAnnotation(in, utf8Constants);
+        if (namespace != null) {
+          return namespace;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static void skipMembers(DataInputStream in) throws IOException {
+    int memberCount = in.readUnsignedShort();
+    for (int i = 0; i < memberCount; i++) {
+      in.skipBytes(6); // access flags, name and descriptor
+      int attributeCount = in.readUnsignedShort();
+      for (int j = 0; j < attributeCount; j++) {
+        in.skipBytes(2);
+        in.skipBytes(in.readInt());
+      }
+    }
+  }
+
+  /**
+   * Reads an annotation and returns its namespace if it is a {@code JsPackage} annotation that
+   * specifies one.
+   */
+  @Nullable
+  private static String readAnnotation(DataInputStream in, String[] utf8Constants)
+      throws IOException {
+    boolean isJsPackage = JS_PACKAGE_DESCRIPTOR.equals(utf8Constants[in.readUnsignedShort()]);
+    String namespace = null;
+    int elementValuePairCount = in.readUnsignedShort();
+    for (int i = 0; i < elementValuePairCount; i++) {
+      String elementName = utf8Constants[in.readUnsignedShort()];
+      int tag = in.readUnsignedByte();
+      if (isJsPackage && tag == 's' && elementName.equals("namespace")) {
+        namespace = utf8Constants[in.readUnsignedShort()];
+      } else {
+        skipElementValue(in, tag);
+      }
+    }
+    return namespace;
+  }
+
+  private static void skipElementValue(DataInputStream in, int tag) throws IOException {
+    switch (tag) {
+      case 'e': // enum constant
+        in.skipBytes(4);
+        break;
+      case '@': // nested annotation
+        in.skipBytes(2);
+        int elementValuePairCount = in.readUnsignedShort();
+        for (int i = 0; i < elementValuePairCount; i++) {
+          in.skipBytes(2);
+          skipElementValue(in, in.readUnsignedByte());
+        }
+        break;
+      case '[': // array
+        int elementCount = in.readUnsignedShort();
+        for (int i = 0; i < elementCount; i++) {
+          skipElementValue(in, in.readUnsignedByte());
+        }
+        break;
+      default: // constant or class
+        in.skipBytes(2);
+        break;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.frontend.common;
+
+import com.google.j2cl.common.FrontendUtils.FileInfo;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds the sources that might declare {@code GwtIncompatible} members.
+ *
+ * <p>The frontends reject sources that still have {@code GwtIncompatible} members since those
+ * should have been removed by the stripper. Looking for the annotation in the AST is costly and
+ * almost no source mentions it, so the sources whose text was found not to contain the annotation
+ * name when they were read are not checked.
+ */
+public final class GwtIncompatibleSources {
+
+  /**
+   * Returns the source paths of the files whose text might mention {@code GwtIncompatible}, or an
+   * empty set if {@code checkGwtIncompatible} is false because the sources are known to be
+   * stripped.
+   */
+  public static Set<String> findCandidates(List<FileInfo> files, boolean checkGwtIncompatible) {
+    Set<String> candidates = new HashSet<>();
+    if (!checkGwtIncompatible) {
+      return candidates;
+    }
+    for (FileInfo file : files) {
+      if (file.mightMentionGwtIncompatible()) {
+        candidates.add(file.sourcePath());
+      }
+    }
+    return candidates;
+  }
+
+  private GwtIncompatibleSources() {}
+}
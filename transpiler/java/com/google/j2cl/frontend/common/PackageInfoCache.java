@@ -20,20 +20,22 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.Iterables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.j2cl.common.CompilationContext.ContextLocal;
+import com.google.j2cl.common.FileDigests;
 import com.google.j2cl.common.Problems;
 import com.google.j2cl.common.Problems.FatalError;
-import java.lang.annotation.Annotation;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
-import jsinterop.annotations.JsPackage;
 
 /**
  * A cache for information on package-info files that are needed for transpilation, like JsInterop
@@ -48,6 +50,8 @@ import jsinterop.annotations.JsPackage;
  * multiple class path entries contain the same packages but with different package info files,
  * depending on what arbitrary set of class path entries do or do not happen to be included in the
  * current compile.
+ *
+ * <p>The cache is safe to query from all the threads that work on the same compilation.
  */
 public class PackageInfoCache {
 
@@ -83,8 +87,28 @@ public class PackageInfoCache {
    */
   private static final PackageReport DEFAULT_PACKAGE_REPORT = PackageReport.newBuilder().build();
 
-  /** Allows for the initialization/retrieval of one shared PackageInfoCache instance per thread. */
-  private static final ThreadLocal<PackageInfoCache> packageInfoCacheStorage = new ThreadLocal<>();
+  /**
+   * Allows for the initialization/retrieval of one shared PackageInfoCache instance per compilation.
+   */
+  private static final ContextLocal<PackageInfoCache> packageInfoCacheStorage =
+      ContextLocal.create();
+
+  /**
+   * The indexes of the most recently used classpath jars keyed by the digest of the jar. They only
+   * depend on the contents of the jars, so they are shared by all the compilations of the process.
+   */
+  private static final Cache<String, ClassPathEntryIndex> classPathEntryIndexByDigest =
+      CacheBuilder.newBuilder()
+          .maximumSize(Integer.getInteger("j2cl.classPathIndexCacheMaxEntries", 256))
+          .build();
+
+  /**
+   * The class loader of the Java runtime that runs the transpiler. Types that it provides are never
+   * attributed to a class path entry, as was the case when class path entries were searched by a
+   * class loader that delegated to it.
+   */
+  private static final ClassLoader PLATFORM_CLASS_LOADER =
+      ClassLoader.getSystemClassLoader().getParent();
 
   @VisibleForTesting
   public static void clear() {
@@ -98,23 +122,9 @@ public class PackageInfoCache {
   public static void init(List<String> classPathEntries, Problems problems) {
     checkState(
         packageInfoCacheStorage.get() == null,
-        "PackageInfoCache should only be initialized once per thread.");
+        "PackageInfoCache should only be initialized once per compilation.");
 
-    // Constructs a URLClassLoader to do the dirty work of finding package-info.class files in the
-    // classpath of the compile.
-    List<URL> classPathUrls = new ArrayList<>();
-    for (String classPathEntry : classPathEntries) {
-      try {
-        classPathUrls.add(new URL("file:" + classPathEntry));
-      } catch (MalformedURLException e) {
-        problems.fatal(FatalError.CANNOT_OPEN_FILE, e.toString());
-      }
-    }
-    URLClassLoader resourcesClassLoader =
-        new URLClassLoader(
-            Iterables.toArray(classPathUrls, URL.class), PackageInfoCache.class.getClassLoader());
-
-    packageInfoCacheStorage.set(new PackageInfoCache(resourcesClassLoader, problems));
+    packageInfoCacheStorage.set(new PackageInfoCache(classPathEntries, problems));
   }
 
   private static String toSpecificPackagePath(String classPathEntry, String packagePath) {
@@ -124,10 +134,11 @@ public class PackageInfoCache {
   private final Problems problems;
   private final Map<String, PackageReport> packageReportBySpecificPackagePath = new HashMap<>();
   private final Map<String, PackageReport> packageReportByTypeName = new HashMap<>();
-  private final ClassLoader resourcesClassLoader;
+  private final List<String> classPathEntries;
+  private final Map<String, ClassPathEntryIndex> classPathEntryIndexByEntry = new HashMap<>();
 
-  private PackageInfoCache(ClassLoader resourcesClassLoader, Problems problems) {
-    this.resourcesClassLoader = resourcesClassLoader;
+  private PackageInfoCache(List<String> classPathEntries, Problems problems) {
+    this.classPathEntries = ImmutableList.copyOf(classPathEntries);
     this.problems = problems;
   }
 
@@ -135,7 +146,7 @@ public class PackageInfoCache {
    * Returns the JsNamespace for the given type, which must be a top level type and referenced by
    * fully qualified source name.
    */
-  public String getJsNamespace(String topLevelTypeSourceName) {
+  public synchronized String getJsNamespace(String topLevelTypeSourceName) {
     return getPackageReport(topLevelTypeSourceName).getJsNamespace();
   }
 
@@ -145,7 +156,7 @@ public class PackageInfoCache {
    * example if this class has also been globbed into some other library that is a dependency of
    * this one.
    */
-  public void markAsSource(String topLevelTypeSourceName) {
+  public synchronized void markAsSource(String topLevelTypeSourceName) {
     propagateSpecificInfo(SOURCE_CLASS_PATH_ENTRY, topLevelTypeSourceName);
   }
 
@@ -153,7 +164,7 @@ public class PackageInfoCache {
    * Specify the JavaScript namespace for a given package (as identified by the combination of class
    * path entry and package path).
    */
-  public void setPackageJsNamespace(
+  public synchronized void setPackageJsNamespace(
       String classPathEntry, String packagePath, String packageJsNamespace) {
     setReportForPackage(
         classPathEntry,
@@ -161,61 +172,50 @@ public class PackageInfoCache {
         PackageReport.newBuilder().setJsNamespace(packageJsNamespace).build());
   }
 
-  @SuppressWarnings({"resource", "unused"})
-  private Annotation[] findBytecodePackageAnnotations(String classPathEntry, String packagePath) {
-    checkNotNull(classPathEntry);
-    String packageInfoRelativeFilePath = packagePath.replace('.', '/') + "/package-info.class";
-    String packageInfoSourceName = packagePath + ".package-info";
-
-    Annotation[] annotations = {};
-    try {
-      URLClassLoader entryClassLoader =
-          new URLClassLoader(new URL[] {new URL(classPathEntry)}, resourcesClassLoader);
-
-      // This find does not recurse up the class loader parent chain. We want to know if *exactly*
-      // this class path entry contains the package-info class.
-      URL packageInfoResource = entryClassLoader.findResource(packageInfoRelativeFilePath);
-      if (packageInfoResource == null) {
-        return annotations;
+  /** Returns the first classpath entry that provides class file for the given type. */
+  private String findOriginClassPathEntry(String typeName) {
+    for (String classPathEntry : classPathEntries) {
+      if (getClassPathEntryIndex(classPathEntry).containsType(typeName)) {
+        return isJdkType(typeName) ? null : classPathEntry;
       }
-
-      // This load *does* recurse up the class loader parent chain and this is important to be able
-      // to load the annotations that are referenced. They are almost certain to not be available in
-      // just the particular target class path entry.
-      Class<?> packageInfoClass = entryClassLoader.loadClass(packageInfoSourceName);
-      annotations = packageInfoClass.getAnnotations();
-    } catch (ClassNotFoundException e) {
-      problems.fatal(FatalError.PACKAGE_INFO_PARSE, packageInfoRelativeFilePath);
-    } catch (MalformedURLException e) {
-      problems.fatal(FatalError.CLASS_PATH_URL, classPathEntry);
     }
-    return annotations;
+    return null;
   }
 
-  /** Returns the first classpath entry that provides class file for the given type. */
-  private String findOriginClassPathEntry(String typeName) {
-    String classFilePath = typeName.replace(".", "/") + ".class";
-
-    URL typeResource = resourcesClassLoader.getResource(classFilePath);
-    if (typeResource == null) {
-      return null;
-    } else {
-      if (typeResource.getProtocol().equals("jrt")) {
-        // Java 9 SDK url, ignore for now.
-        // TODO(rluble): revisit when compiling under -source 9.
-        return null;
-      }
-      String resourcePath = typeResource.getFile();
-      String originClassPathEntry =
-          resourcePath.substring(0, resourcePath.length() - classFilePath.length());
-      if (originClassPathEntry.endsWith("/")) {
-        originClassPathEntry = originClassPathEntry.substring(0, originClassPathEntry.length() - 1);
-      }
-      if (originClassPathEntry.endsWith("!")) {
-        originClassPathEntry = originClassPathEntry.substring(0, originClassPathEntry.length() - 1);
+  private static boolean isJdkType(String typeName) {
+    // The resource is a "jrt:" url from Java 9 on and an entry of rt.jar before; neither has
+    // package-info classes that are relevant to the transpilation.
+    return PLATFORM_CLASS_LOADER.getResource(typeName.replace('.', '/') + ".class") != null;
+  }
+
+  /**
+   * Returns the index of a class path entry, which is built by reading the entry once and shared
+   * with other compilations if the entry is a jar.
+   */
+  private ClassPathEntryIndex getClassPathEntryIndex(String classPathEntry) {
+    ClassPathEntryIndex classPathEntryIndex = classPathEntryIndexByEntry.get(classPathEntry);
+    if (classPathEntryIndex != null) {
+      return classPathEntryIndex;
+    }
+
+    try {
+      Path path = Paths.get(classPathEntry);
+      if (Files.isRegularFile(path)) {
+        String digest = FileDigests.getDigest(path);
+        classPathEntryIndex = classPathEntryIndexByDigest.getIfPresent(digest);
+        if (classPathEntryIndex == null) {
+          classPathEntryIndex = ClassPathEntryIndex.create(path, problems);
+          classPathEntryIndexByDigest.put(digest, classPathEntryIndex);
+        }
+      } else {
+        // Class directories might change without notice, they are indexed in every compilation.
+        classPathEntryIndex = ClassPathEntryIndex.create(path, problems);
       }
-      return originClassPathEntry;
+    } catch (IOException | InvalidPathException e) {
+      problems.fatal(FatalError.CANNOT_OPEN_FILE, e.toString());
     }
+    classPathEntryIndexByEntry.put(classPathEntry, classPathEntryIndex);
+    return classPathEntryIndex;
   }
 
   private String getPackagePath(String topLevelTypeSourceName) {
@@ -254,25 +254,13 @@ public class PackageInfoCache {
 
   private void parsePackageInfo(
       String classPathEntry, String packagePath, String topLevelTypeSourceName) {
-    Annotation[] packageAnnotations = findBytecodePackageAnnotations(classPathEntry, packagePath);
-
-    setPackageJsNamespace(classPathEntry, packagePath, getPackageJsNamespace(packageAnnotations));
+    setReportForPackage(
+        classPathEntry,
+        packagePath,
+        getClassPathEntryIndex(classPathEntry).getPackageReport(packagePath));
     propagateSpecificInfo(classPathEntry, topLevelTypeSourceName);
   }
 
-  private static String getPackageJsNamespace(Annotation[] packageAnnotations) {
-    if (packageAnnotations == null) {
-      return null;
-    }
-
-    return Arrays.stream(packageAnnotations)
-        .filter(JsPackage.class::isInstance)
-        .findFirst()
-        .map(JsPackage.class::cast)
-        .map(JsPackage::namespace)
-        .orElse(null);
-  }
-
   /**
    * Propagate cached info about a specific package path (which is a combination of a class path
    * entry and a package path) to apply to an exact type name. This saves the cost of needing to do
@@ -87,7 +87,6 @@ import com.google.j2cl.ast.VariableDeclarationExpression;
 import com.google.j2cl.ast.VariableDeclarationFragment;
 import com.google.j2cl.ast.Visibility;
 import com.google.j2cl.ast.WhileStatement;
-import com.google.j2cl.common.FilePosition;
 import com.google.j2cl.common.SourcePosition;
 import com.google.j2cl.frontend.common.AbstractCompilationUnitBuilder;
 import com.google.j2cl.frontend.common.EnumMethodsCreator;
@@ -825,19 +824,9 @@ public class CompilationUnitBuilder extends AbstractCompilationUnitBuilder {
     return SourcePosition.newBuilder()
         .setFilePath(javacUnit.getSourceFile().getName())
         .setName(name)
-        .setStartFilePosition(
-            FilePosition.newBuilder()
-                .setLine(startLine)
-                .setColumn(startColumn)
-                .setByteOffset(startCharacterPosition)
-                .build())
-        .setEndFilePosition(
-            FilePosition.newBuilder()
-                .setLine(endLine)
-                // TODO(b/92372836): Document which character this should point to
-                .setColumn(endColumn)
-                .setByteOffset(endCharacterPosition + 1)
-                .build())
+        .setStartFilePosition(startLine, startColumn, startCharacterPosition)
+        // TODO(b/92372836): Document which character this should point to
+        .setEndFilePosition(endLine, endColumn, endCharacterPosition + 1)
         .build();
   }
 
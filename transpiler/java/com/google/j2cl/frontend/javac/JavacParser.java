@@ -18,30 +18,30 @@ package com.google.j2cl.frontend.javac;
 import static java.util.stream.Collectors.toList;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.j2cl.ast.CompilationUnit;
+import com.google.j2cl.common.ClasspathEnvironmentCache;
 import com.google.j2cl.common.FrontendUtils.FileInfo;
 import com.google.j2cl.common.Problems;
 import com.google.j2cl.common.Problems.FatalError;
 import com.google.j2cl.frontend.common.FrontendConstants;
+import com.google.j2cl.frontend.common.GwtIncompatibleSources;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.tools.javac.api.JavacTaskImpl;
 import com.sun.tools.javac.file.JavacFileManager;
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 import javax.tools.Diagnostic;
 import javax.tools.Diagnostic.Kind;
 import javax.tools.DiagnosticCollector;
-import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
-import javax.tools.StandardLocation;
-import javax.tools.ToolProvider;
+import javax.tools.SimpleJavaFileObject;
 
 /**
  * A delegator of Javac ASTParser that provides a more convenient interface for parsing source files
@@ -50,11 +50,29 @@ import javax.tools.ToolProvider;
 public class JavacParser {
   private final Problems problems;
   private final List<String> classpathEntries;
+  private final boolean checkGwtIncompatible;
+  private final boolean reuseSessions;
 
   /** Create and initialize a JavacParser based on passed parameters. */
   public JavacParser(List<String> classpathEntries, Problems problems) {
+    this(classpathEntries, ClasspathEnvironmentCache.disabled(), true, problems);
+  }
 
+  /**
+   * Create and initialize a JavacParser that checks for {@code GwtIncompatible} members only if
+   * {@code checkGwtIncompatible} is true, i.e. if the sources might not have been stripped.
+   *
+   * <p>If {@code classpathEnvironmentCache} retains the classpath across compilations, the javac
+   * file manager is retained as well and reused by the compilations that have the same classpath.
+   */
+  public JavacParser(
+      List<String> classpathEntries,
+      ClasspathEnvironmentCache classpathEnvironmentCache,
+      boolean checkGwtIncompatible,
+      Problems problems) {
     this.classpathEntries = ImmutableList.copyOf(classpathEntries);
+    this.checkGwtIncompatible = checkGwtIncompatible;
+    this.reuseSessions = classpathEnvironmentCache.isEnabled();
     this.problems = problems;
   }
 
@@ -65,58 +83,70 @@ public class JavacParser {
       return ImmutableList.of();
     }
 
-    // The map must be ordered because it will be iterated over later and if it was not ordered then
-    // our output would be unstable
-    final Map<String, String> targetPathBySourcePath =
-        filePaths.stream().collect(Collectors.toMap(FileInfo::sourcePath, FileInfo::targetPath));
-
     try {
-      JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      // The session is released by the frontend once the whole compilation is done, since the
+      // descriptors of the units keep completing from the javac symbols until then.
+      JavacSession session = JavacSession.acquire(classpathEntries, reuseSessions);
+      JavacFileManager fileManager = session.getFileManager();
       DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-      JavacFileManager fileManager =
-          (JavacFileManager)
-              compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
-      List<File> searchpath = classpathEntries.stream().map(File::new).collect(toList());
-      fileManager.setLocation(StandardLocation.PLATFORM_CLASS_PATH, searchpath);
-      fileManager.setLocation(StandardLocation.CLASS_PATH, searchpath);
+      // Only the sources that mention GwtIncompatible need to be looked at for GwtIncompatible
+      // members.
+      Set<String> gwtIncompatibleCandidates =
+          GwtIncompatibleSources.findCandidates(filePaths, checkGwtIncompatible);
+      List<JavaFileObject> javaFileObjects = new ArrayList<>();
+      Set<JavaFileObject> gwtIncompatibleCandidateFileObjects = new HashSet<>();
+      for (FileInfo fileInfo : filePaths) {
+        Iterable<? extends JavaFileObject> fileObjects =
+            fileInfo.isInMemory()
+                ? ImmutableList.of(new InMemoryJavaFileObject(fileInfo))
+                : fileManager.getJavaFileObjects(fileInfo.sourcePath());
+        Iterables.addAll(javaFileObjects, fileObjects);
+        if (gwtIncompatibleCandidates.contains(fileInfo.sourcePath())) {
+          Iterables.addAll(gwtIncompatibleCandidateFileObjects, fileObjects);
+        }
+      }
       JavacTaskImpl task =
-          (JavacTaskImpl)
-              compiler.getTask(
-                  null,
-                  fileManager,
-                  diagnostics,
-                  // TODO(b/143213486): Remove -source 8 and figure out how to configure
-                  // SYSTEM_MODULES and MODULE_PATH to prevent searching for modules.
-                  ImmutableList.of("-source", "8"),
-                  null,
-                  fileManager.getJavaFileObjectsFromFiles(
-                      targetPathBySourcePath.keySet().stream().map(File::new).collect(toList())));
+          session.createTask(
+              diagnostics,
+              // TODO(b/143213486): Remove -source 8 and figure out how to configure
+              // SYSTEM_MODULES and MODULE_PATH to prevent searching for modules.
+              ImmutableList.of("-source", "8"),
+              javaFileObjects);
       List<CompilationUnitTree> javacCompilationUnits = Lists.newArrayList(task.parse());
       task.analyze();
-      if (hasErrors(diagnostics, javacCompilationUnits)) {
+      if (hasErrors(
+          diagnostics,
+          javacCompilationUnits.stream()
+              .filter(u -> gwtIncompatibleCandidateFileObjects.contains(u.getSourceFile()))
+              .collect(toList()))) {
         return ImmutableList.of();
       }
 
       JavaEnvironment javaEnvironment =
           new JavaEnvironment(task.getContext(), FrontendConstants.WELL_KNOWN_CLASS_NAMES);
-      List<CompilationUnit> compilationUnits =
-          CompilationUnitBuilder.build(javacCompilationUnits, javaEnvironment);
-
-      return compilationUnits;
+      return CompilationUnitBuilder.build(javacCompilationUnits, javaEnvironment);
     } catch (IOException e) {
       problems.fatal(FatalError.valueOf(e.getMessage()));
       return null;
     }
   }
 
+  /**
+   * Releases the javac state held for the current compilation, once the compilation is done with
+   * the compilation units returned by {@link #parseFiles}.
+   */
+  public static void finishCompilation() {
+    JavacSession.releaseSessionOfCompilation();
+  }
+
   private boolean hasErrors(
       DiagnosticCollector<JavaFileObject> diagnosticCollector,
-      List<CompilationUnitTree> javacCompilationUnits) {
+      List<CompilationUnitTree> gwtIncompatibleCandidates) {
     boolean hasErrors = false;
     // Here we check for instances of @GwtIncompatible in the ast. If that is the case, we throw an
     // error since these should have been stripped by the build system already.
     Set<String> filesWithGwtIncompatible =
-        GwtIncompatibleNodeCollector.filesWithGwtIncompatible(javacCompilationUnits);
+        GwtIncompatibleNodeCollector.filesWithGwtIncompatible(gwtIncompatibleCandidates);
     if (!filesWithGwtIncompatible.isEmpty()) {
       problems.fatal(
           FatalError.GWT_INCOMPATIBLE_FOUND_IN_COMPILE, filesWithGwtIncompatible.iterator().next());
@@ -133,4 +163,25 @@ public class JavacParser {
     }
     return hasErrors;
   }
+
+  /** A source file whose content is held in memory, e.g. an entry of a source jar. */
+  private static class InMemoryJavaFileObject extends SimpleJavaFileObject {
+    private final FileInfo fileInfo;
+
+    InMemoryJavaFileObject(FileInfo fileInfo) {
+      super(Paths.get(fileInfo.sourcePath()).toUri(), JavaFileObject.Kind.SOURCE);
+      this.fileInfo = fileInfo;
+    }
+
+    @Override
+    public String getName() {
+      // The name is used for diagnostics and as the file path of the compilation unit.
+      return fileInfo.sourcePath();
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+      return fileInfo.asCharSource().read();
+    }
+  }
 }
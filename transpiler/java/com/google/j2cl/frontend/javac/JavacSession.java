@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.frontend.javac;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.j2cl.common.CompilationContext.ContextLocal;
+import com.google.j2cl.common.FileDigests;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.file.JavacFileManager;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * A javac file manager for a classpath.
+ *
+ * <p>Sessions are retained across the compilations of the process, e.g. in a persistent worker. A
+ * compilation that has the same classpath as a previous one reuses its session, which spares
+ * reading the indexes of the classpath jars again. Sessions are keyed by their classpath and the
+ * digests of its jars, so a session whose jars changed is discarded.
+ *
+ * <p>Only the file manager, and hence the jar indexes, is reused. Each compilation creates a javac
+ * task of its own, with a fresh symbol table, so the classpath classes are completed again by every
+ * compilation. The descriptors of the compilation units keep completing from the symbols of that
+ * task, and hence from the file manager, until the whole compilation is done; so a session stays
+ * checked out by the compilation that acquired it until {@link #releaseSessionOfCompilation} is
+ * called at the end of the compilation.
+ */
+final class JavacSession {
+
+  /** The maximum number of idle sessions retained by the process. */
+  private static final int MAX_RETAINED_SESSIONS = 4;
+
+  /**
+   * The idle sessions, keyed by their classpath. Sessions are taken out of the map while in use so
+   * that each is used by a single compilation at a time.
+   */
+  private static final Map<String, JavacSession> retainedSessionByClasspath =
+      new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+
+  /** The session acquired by the current compilation. */
+  private static final ContextLocal<JavacSession> sessionOfCompilation = ContextLocal.create();
+
+  private static final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+  /**
+   * Returns a session for {@code classpathEntries}, which the current compilation has to give back
+   * by means of {@link #releaseSessionOfCompilation} once it is done.
+   *
+   * <p>If {@code reuse} is false or the classpath has entries whose content cannot be digested,
+   * e.g. directories, the session is created for a single compilation.
+   */
+  static JavacSession acquire(List<String> classpathEntries, boolean reuse) throws IOException {
+    checkState(
+        sessionOfCompilation.get() == null,
+        "A javac session should only be acquired once per compilation.");
+    JavacSession session = create(classpathEntries, reuse);
+    sessionOfCompilation.set(session);
+    return session;
+  }
+
+  private static JavacSession create(List<String> classpathEntries, boolean reuse)
+      throws IOException {
+    List<String> digests = reuse ? getDigests(classpathEntries) : null;
+    if (digests == null) {
+      return new JavacSession(classpathEntries, null);
+    }
+
+    String classpath = String.join(File.pathSeparator, classpathEntries);
+    JavacSession session;
+    synchronized (retainedSessionByClasspath) {
+      session = retainedSessionByClasspath.remove(classpath);
+    }
+    if (session != null && session.digests.equals(digests)) {
+      return session;
+    }
+    if (session != null) {
+      // A jar in the classpath changed, the classes read from it are stale.
+      session.close();
+    }
+    return new JavacSession(classpathEntries, digests);
+  }
+
+  /**
+   * Gives back the session acquired by the current compilation, if any, once the compilation is
+   * done with its compilation units.
+   */
+  static void releaseSessionOfCompilation() {
+    JavacSession session = sessionOfCompilation.get();
+    if (session == null) {
+      return;
+    }
+    sessionOfCompilation.remove();
+    if (session.digests == null) {
+      session.close();
+      return;
+    }
+
+    String classpath = String.join(File.pathSeparator, session.classpathEntries);
+    synchronized (retainedSessionByClasspath) {
+      JavacSession replacedSession = retainedSessionByClasspath.put(classpath, session);
+      if (replacedSession != null) {
+        replacedSession.close();
+      }
+      Iterator<JavacSession> iterator = retainedSessionByClasspath.values().iterator();
+      while (retainedSessionByClasspath.size() > MAX_RETAINED_SESSIONS) {
+        iterator.next().close();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns the digests of the classpath entries or {@code null} if there is an entry whose content
+   * cannot be digested.
+   */
+  private static List<String> getDigests(List<String> classpathEntries) {
+    ImmutableList.Builder<String> digests = ImmutableList.builder();
+    for (String classpathEntry : classpathEntries) {
+      Path path = Paths.get(classpathEntry);
+      if (!Files.isRegularFile(path)) {
+        return null;
+      }
+      try {
+        digests.add(FileDigests.getDigest(path));
+      } catch (IOException e) {
+        // The entry will be reported when javac fails to read it.
+        return null;
+      }
+    }
+    return digests.build();
+  }
+
+  private final List<String> classpathEntries;
+  private final List<String> digests;
+  private final JavacFileManager fileManager;
+
+  private JavacSession(List<String> classpathEntries, List<String> digests) throws IOException {
+    this.classpathEntries = ImmutableList.copyOf(classpathEntries);
+    this.digests = digests;
+    // Diagnostics are reported through the listener of each compilation rather than through the
+    // file manager, which outlives the compilation that created it.
+    this.fileManager =
+        (JavacFileManager) compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+    List<File> searchpath = classpathEntries.stream().map(File::new).collect(toList());
+    fileManager.setLocation(StandardLocation.PLATFORM_CLASS_PATH, searchpath);
+    fileManager.setLocation(StandardLocation.CLASS_PATH, searchpath);
+  }
+
+  JavacFileManager getFileManager() {
+    return fileManager;
+  }
+
+  /** Returns a new javac task that compiles {@code compilationUnits} against the classpath. */
+  JavacTaskImpl createTask(
+      DiagnosticListener<? super JavaFileObject> diagnosticListener,
+      List<String> options,
+      List<? extends JavaFileObject> compilationUnits) {
+    return (JavacTaskImpl)
+        compiler.getTask(null, fileManager, diagnosticListener, options, null, compilationUnits);
+  }
+
+  private void close() {
+    try {
+      fileManager.close();
+    } catch (IOException e) {
+      // Nothing can be done, the session is not used anymore.
+    }
+  }
+}
@@ -19,12 +19,12 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableList.toImmutableList;
-import static java.util.Map.Entry.comparingByKey;
 import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
 
 import com.google.common.base.Predicates;
 import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.MoreCollectors;
 import com.google.j2cl.ast.ArrayAccess;
@@ -91,7 +91,6 @@ import com.google.j2cl.ast.VariableDeclarationExpression;
 import com.google.j2cl.ast.VariableDeclarationFragment;
 import com.google.j2cl.ast.Visibility;
 import com.google.j2cl.ast.WhileStatement;
-import com.google.j2cl.common.FilePosition;
 import com.google.j2cl.common.SourcePosition;
 import com.google.j2cl.frontend.common.AbstractCompilationUnitBuilder;
 import com.google.j2cl.frontend.common.EnumMethodsCreator;
@@ -101,7 +100,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.function.Function;
 import org.eclipse.jdt.core.dom.ASTNode;
@@ -734,19 +732,9 @@ public class CompilationUnitBuilder extends AbstractCompilationUnitBuilder {
       return SourcePosition.newBuilder()
           .setFilePath(getCurrentCompilationUnit().getFilePath())
           .setName(name)
-          .setStartFilePosition(
-              FilePosition.newBuilder()
-                  .setLine(startLine)
-                  .setColumn(startColumn)
-                  .setByteOffset(startCharacterPosition)
-                  .build())
-          .setEndFilePosition(
-              FilePosition.newBuilder()
-                  .setLine(endLine)
-                  // TODO(b/92372836): Document which character this should point to
-                  .setColumn(endColumn)
-                  .setByteOffset(endCharacterPosition + 1)
-                  .build())
+          .setStartFilePosition(startLine, startColumn, startCharacterPosition)
+          // TODO(b/92372836): Document which character this should point to
+          .setEndFilePosition(endLine, endColumn, endCharacterPosition + 1)
           .build();
     }
 
@@ -1634,6 +1622,13 @@ public class CompilationUnitBuilder extends AbstractCompilationUnitBuilder {
     return converter.convert(sourceFilePath, compilationUnit, wellKnownTypeBindings);
   }
 
+  /**
+   * Converts the JDT compilation units into J2CL compilation units.
+   *
+   * <p>The JDT units are removed from {@code compilationUnitsAndTypeBindings} as they are converted
+   * so that each JDT AST, which is by far larger than its J2CL counterpart, can be garbage collected
+   * as soon as it has been converted rather than after the whole library has been converted.
+   */
   public static List<CompilationUnit> build(
       CompilationUnitsAndTypeBindings compilationUnitsAndTypeBindings) {
 
@@ -1643,36 +1638,31 @@ public class CompilationUnitBuilder extends AbstractCompilationUnitBuilder {
         compilationUnitsAndTypeBindings.getTypeBindings();
     CompilationUnitBuilder compilationUnitBuilder = new CompilationUnitBuilder();
 
-    List<Entry<String, org.eclipse.jdt.core.dom.CompilationUnit>> entries =
-        new ArrayList<>(jdtUnitsByFilePath.entrySet());
+    List<String> filePaths = new ArrayList<>(jdtUnitsByFilePath.keySet());
     // Ensure that all source package-info classes come before all other classes so that the
     // freshness of the PackageInfoCache can be trusted.
-    sortPackageInfoFirst(entries);
-
-    return entries
-        .stream()
-        .map(
-            entry ->
-                compilationUnitBuilder.buildCompilationUnit(
-                    entry.getKey(), entry.getValue(), wellKnownTypeBindings))
-        .collect(toImmutableList());
+    sortPackageInfoFirst(filePaths);
+
+    ImmutableList.Builder<CompilationUnit> compilationUnits = ImmutableList.builder();
+    for (String filePath : filePaths) {
+      compilationUnits.add(
+          compilationUnitBuilder.buildCompilationUnit(
+              filePath, jdtUnitsByFilePath.remove(filePath), wellKnownTypeBindings));
+    }
+    return compilationUnits.build();
   }
 
-  private static void sortPackageInfoFirst(
-      List<Entry<String, org.eclipse.jdt.core.dom.CompilationUnit>> entries) {
-    // Ensure that all source package-info classes come before all other classes so that the
-    // freshness of the PackageInfoCache can be trusted.
+  private static void sortPackageInfoFirst(List<String> filePaths) {
     Collections.sort(
-        entries,
-        comparingByKey(
-            (thisFilePath, thatFilePath) -> {
-              boolean thisIsPackageInfo = thisFilePath.endsWith("package-info.java");
-              boolean thatIsPackageInfo = thatFilePath.endsWith("package-info.java");
-              return ComparisonChain.start()
-                  .compareTrueFirst(thisIsPackageInfo, thatIsPackageInfo)
-                  .compare(thisFilePath, thatFilePath)
-                  .result();
-            }));
+        filePaths,
+        (thisFilePath, thatFilePath) -> {
+          boolean thisIsPackageInfo = thisFilePath.endsWith("package-info.java");
+          boolean thatIsPackageInfo = thatFilePath.endsWith("package-info.java");
+          return ComparisonChain.start()
+              .compareTrueFirst(thisIsPackageInfo, thatIsPackageInfo)
+              .compare(thisFilePath, thatFilePath)
+              .result();
+        });
   }
 
   private CompilationUnitBuilder() {}
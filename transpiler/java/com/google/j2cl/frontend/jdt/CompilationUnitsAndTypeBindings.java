@@ -32,6 +32,11 @@ public class CompilationUnitsAndTypeBindings {
     this.typeBindings = typeBindings;
   }
 
+  /**
+   * Returns the JDT compilation units by file path.
+   *
+   * <p>The map is drained by {@link CompilationUnitBuilder#build} as the units are converted.
+   */
   public Map<String, CompilationUnit> getCompilationUnitsByFilePath() {
     return compilationUnitByFilePath;
   }
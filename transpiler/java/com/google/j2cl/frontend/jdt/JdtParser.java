@@ -17,18 +17,25 @@ package com.google.j2cl.frontend.jdt;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.j2cl.common.ClasspathEnvironmentCache;
 import com.google.j2cl.common.FrontendUtils.FileInfo;
 import com.google.j2cl.common.Problems;
 import com.google.j2cl.common.Problems.FatalError;
 import com.google.j2cl.frontend.common.FrontendConstants;
+import com.google.j2cl.frontend.common.GwtIncompatibleSources;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 import org.eclipse.jdt.core.BindingKey;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.compiler.IProblem;
@@ -50,14 +57,33 @@ public class JdtParser {
   private final Problems problems;
   private final Map<String, String> compilerOptions = new HashMap<>();
   private final List<String> classpathEntries;
+  private final ClasspathEnvironmentCache classpathEnvironmentCache;
+  private final boolean checkGwtIncompatible;
 
   /** Create and initialize a JdtParser based on passed parameters. */
   public JdtParser(List<String> classpathEntries, Problems problems) {
+    this(classpathEntries, ClasspathEnvironmentCache.disabled(), true, problems);
+  }
+
+  /**
+   * Create and initialize a JdtParser that resolves the classpath through {@code
+   * classpathEnvironmentCache}.
+   *
+   * <p>The check for {@code GwtIncompatible} members can be turned off with {@code
+   * checkGwtIncompatible} for sources that already went through the stripper.
+   */
+  public JdtParser(
+      List<String> classpathEntries,
+      ClasspathEnvironmentCache classpathEnvironmentCache,
+      boolean checkGwtIncompatible,
+      Problems problems) {
     compilerOptions.put(JavaCore.COMPILER_SOURCE, JAVA_VERSION);
     compilerOptions.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JAVA_VERSION);
     compilerOptions.put(JavaCore.COMPILER_COMPLIANCE, JAVA_VERSION);
 
     this.classpathEntries = ImmutableList.copyOf(classpathEntries);
+    this.classpathEnvironmentCache = classpathEnvironmentCache;
+    this.checkGwtIncompatible = checkGwtIncompatible;
     this.problems = problems;
   }
 
@@ -72,19 +98,27 @@ public class JdtParser {
     // our output would be unstable
     final Map<String, CompilationUnit> compilationUnitsByFilePath = new LinkedHashMap<>();
     final List<ITypeBinding> wellKnownTypeBindings = new ArrayList<>();
-    final Map<String, String> targetPathBySourcePath =
-        filePaths.stream().collect(Collectors.toMap(FileInfo::sourcePath, FileInfo::targetPath));
+    final Map<String, FileInfo> fileInfoByParsedPath = new LinkedHashMap<>();
+    // Only the sources that mention GwtIncompatible need to be looked at for GwtIncompatible
+    // members.
+    final Set<String> gwtIncompatibleCandidates =
+        GwtIncompatibleSources.findCandidates(filePaths, checkGwtIncompatible);
+    Path scratchDirectory = writeInMemorySources(filePaths, fileInfoByParsedPath);
 
     FileASTRequestor astRequestor =
         new FileASTRequestor() {
           @Override
           public void acceptAST(String filePath, CompilationUnit compilationUnit) {
-            if (compilationHasErrors(filePath, compilationUnit)) {
+            FileInfo fileInfo = fileInfoByParsedPath.get(filePath);
+            if (compilationHasErrors(
+                fileInfo.sourcePath(),
+                compilationUnit,
+                gwtIncompatibleCandidates.contains(fileInfo.sourcePath()))) {
               return;
             }
-            String filePathKey = filePath;
+            String filePathKey = fileInfo.sourcePath();
             if (useTargetPath) {
-              filePathKey = targetPathBySourcePath.get(filePath);
+              filePathKey = fileInfo.targetPath();
             }
             compilationUnitsByFilePath.put(filePathKey, compilationUnit);
           }
@@ -94,22 +128,76 @@ public class JdtParser {
             wellKnownTypeBindings.add((ITypeBinding) binding);
           }
         };
-    parser.createASTs(
-        filePaths.stream().map(f -> f.sourcePath()).toArray(String[]::new),
-        getEncodings(filePaths.size()),
-        FrontendConstants.WELL_KNOWN_CLASS_NAMES.stream()
-            .map(BindingKey::createTypeBindingKey)
-            .toArray(String[]::new),
-        astRequestor,
-        null);
+    try {
+      // All the files are parsed and resolved by this single call, hence on a single thread. They
+      // cannot be split into batches that are parsed concurrently: each createASTs call builds its
+      // own lookup environment, whose bindings are not interchangeable with those of the others,
+      // and JDT's lookup environment cannot be shared between threads.
+      parser.createASTs(
+          fileInfoByParsedPath.keySet().toArray(new String[0]),
+          getEncodings(fileInfoByParsedPath.size()),
+          FrontendConstants.WELL_KNOWN_CLASS_NAMES.stream()
+              .map(BindingKey::createTypeBindingKey)
+              .toArray(String[]::new),
+          astRequestor,
+          null);
+    } finally {
+      deleteScratchDirectory(scratchDirectory);
+    }
     return new CompilationUnitsAndTypeBindings(compilationUnitsByFilePath, wellKnownTypeBindings);
   }
 
+  /**
+   * Records the path JDT parses each file from, writing the files that are held in memory into a
+   * scratch directory since JDT can only parse files that exist on disk. Source jars are hence
+   * still extracted with this frontend, just later and only for the files that are compiled.
+   *
+   * <p>Returns the scratch directory or {@code null} if all the files are on disk.
+   */
+  private Path writeInMemorySources(
+      List<FileInfo> filePaths, Map<String, FileInfo> fileInfoByParsedPath) {
+    Path scratchDirectory = null;
+    try {
+      for (FileInfo fileInfo : filePaths) {
+        if (!fileInfo.isInMemory()) {
+          fileInfoByParsedPath.put(fileInfo.sourcePath(), fileInfo);
+          continue;
+        }
+        if (scratchDirectory == null) {
+          scratchDirectory = Files.createTempDirectory("j2cl_sources");
+        }
+        Path scratchFile = scratchDirectory.resolve(fileInfo.originalPath());
+        Files.createDirectories(scratchFile.getParent());
+        fileInfo.asByteSource().copyTo(MoreFiles.asByteSink(scratchFile));
+        fileInfoByParsedPath.put(scratchFile.toString(), fileInfo);
+      }
+      return scratchDirectory;
+    } catch (IOException e) {
+      deleteScratchDirectory(scratchDirectory);
+      problems.fatal(FatalError.CANNOT_WRITE_FILE, e.toString());
+      return null;
+    }
+  }
+
+  private static void deleteScratchDirectory(Path scratchDirectory) {
+    if (scratchDirectory == null) {
+      return;
+    }
+    try {
+      MoreFiles.deleteRecursively(scratchDirectory, RecursiveDeleteOption.ALLOW_INSECURE);
+    } catch (IOException e) {
+      // Leaving the scratch directory behind does not affect the compilation.
+    }
+  }
+
   private ASTParser newASTParser(boolean resolveBinding) {
     ASTParser parser = ASTParser.newParser(AST_JLS_VERSION);
 
     parser.setCompilerOptions(compilerOptions);
     parser.setResolveBindings(resolveBinding);
+    // JDT builds its name environment, and opens the classpath jars, anew for every parser;
+    // keeping the jars open across compilations spares it from rereading their central directories.
+    classpathEnvironmentCache.retain(classpathEntries);
     parser.setEnvironment(
         Iterables.toArray(classpathEntries, String.class), new String[0], new String[0], false);
     return parser;
@@ -121,14 +209,17 @@ public class JdtParser {
     return encodings;
   }
 
-  private boolean compilationHasErrors(String filename, CompilationUnit unit) {
+  private boolean compilationHasErrors(
+      String filename, CompilationUnit unit, boolean mentionsGwtIncompatible) {
     boolean hasErrors = false;
     // Here we check for instances of @GwtIncompatible in the ast. If that is the case, we throw an
     // error since these should have been stripped by the build system already.
-    GwtIncompatibleNodeCollector collector = new GwtIncompatibleNodeCollector();
-    unit.accept(collector);
-    if (!collector.getNodes().isEmpty()) {
-      problems.fatal(FatalError.GWT_INCOMPATIBLE_FOUND_IN_COMPILE, filename);
+    if (mentionsGwtIncompatible) {
+      GwtIncompatibleNodeCollector collector = new GwtIncompatibleNodeCollector();
+      unit.accept(collector);
+      if (!collector.getNodes().isEmpty()) {
+        problems.fatal(FatalError.GWT_INCOMPATIBLE_FOUND_IN_COMPILE, filename);
+      }
     }
     for (IProblem problem : unit.getProblems()) {
       if (problem.isError()) {
@@ -47,6 +47,7 @@ import com.google.j2cl.ast.TypeDescriptors;
 import com.google.j2cl.ast.TypeVariable;
 import com.google.j2cl.ast.Variable;
 import com.google.j2cl.ast.Visibility;
+import com.google.j2cl.common.CompilationContext.ContextLocal;
 import com.google.j2cl.common.InternalCompilerError;
 import com.google.j2cl.common.SourcePosition;
 import com.google.j2cl.frontend.common.PackageInfoCache;
@@ -54,12 +55,12 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.Assignment;
@@ -905,7 +906,8 @@ class JdtUtils {
     return createTypeDescriptors(Arrays.asList(typeBindings), clazz);
   }
 
-  private static ThreadLocal<ITypeBinding> javaLangObjectTypeBinding = new ThreadLocal<>();
+  private static final ContextLocal<ITypeBinding> javaLangObjectTypeBinding =
+      ContextLocal.create();
 
   public static void initWellKnownTypes(AST ast, Iterable<ITypeBinding> typeBindings) {
     javaLangObjectTypeBinding.set(ast.resolveWellKnownType("java.lang.Object"));
@@ -946,19 +948,24 @@ class JdtUtils {
   }
 
   /**
-   * This cache is a Hashtable so is already synchronized and safe to use from multiple threads. We
-   * don't need a separate cache for each thread (like interners have) since JDT's ITypeBinding
-   * instances (which we are using as keys) are unique per JDT parse.
+   * The descriptors created for the type bindings of the current compilation.
+   *
+   * <p>JDT's ITypeBinding instances are unique per JDT parse and use identity equality, so the
+   * cache is scoped to the compilation and discarded with it; otherwise it would keep the bindings
+   * of every past compilation alive. Lookups do not lock, which lets the threads of a compilation
+   * use it concurrently.
    */
-  @SuppressWarnings("JdkObsolete")
-  private static Map<ITypeBinding, DeclaredTypeDescriptor>
-      cachedDeclaredTypeDescriptorByTypeBinding = new Hashtable<>();
+  private static final ContextLocal<Map<ITypeBinding, DeclaredTypeDescriptor>>
+      cachedDeclaredTypeDescriptorByTypeBinding = ContextLocal.withInitial(ConcurrentHashMap::new);
 
   // This is only used by TypeProxyUtils, and cannot be used elsewhere. Because to create a
   // TypeDescriptor from a TypeBinding, it should go through the path to check array type.
   private static DeclaredTypeDescriptor createDeclaredType(final ITypeBinding typeBinding) {
-    if (cachedDeclaredTypeDescriptorByTypeBinding.containsKey(typeBinding)) {
-      return cachedDeclaredTypeDescriptorByTypeBinding.get(typeBinding);
+    Map<ITypeBinding, DeclaredTypeDescriptor> typeDescriptorByTypeBinding =
+        cachedDeclaredTypeDescriptorByTypeBinding.get();
+    DeclaredTypeDescriptor cachedTypeDescriptor = typeDescriptorByTypeBinding.get(typeBinding);
+    if (cachedTypeDescriptor != null) {
+      return cachedTypeDescriptor;
     }
 
     checkArgument(!typeBinding.isArray());
@@ -1017,8 +1024,11 @@ class JdtUtils {
             .setDeclaredFieldDescriptorsFactory(declaredFields)
             .setDeclaredMethodDescriptorsFactory(declaredMethods)
             .build();
-    cachedDeclaredTypeDescriptorByTypeBinding.put(typeBinding, typeDescriptor);
-    return typeDescriptor;
+    // Descriptors are not created inside computeIfAbsent because creating one recursively creates
+    // the descriptors of its supertypes; if two threads race the first descriptor wins.
+    DeclaredTypeDescriptor existingTypeDescriptor =
+        typeDescriptorByTypeBinding.putIfAbsent(typeBinding, typeDescriptor);
+    return existingTypeDescriptor != null ? existingTypeDescriptor : typeDescriptor;
   }
 
   private static Kind getKindFromTypeBinding(ITypeBinding typeBinding) {
@@ -35,6 +35,7 @@ import com.google.j2cl.ast.TypeDescriptors.BootstrapType;
 import com.google.j2cl.ast.TypeVariable;
 import com.google.j2cl.ast.UnionTypeDescriptor;
 import com.google.j2cl.ast.Variable;
+import com.google.j2cl.common.CompilationContext.ContextLocal;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -596,13 +597,19 @@ class ClosureTypesGenerator {
   /**
    * Map from typed eclarations that are mapped into closure native types to the corresponding type
    */
-  private static final ThreadLocal<Map<TypeDeclaration, ClosureType>> closureTypeByTypeDeclaration =
-      ThreadLocal.withInitial(
-          () ->
-              ImmutableMap.of(
-                  TypeDescriptors.get().javaLangObject.getTypeDeclaration(), ANY.toNullable(),
-                  TypeDescriptors.get().javaLangString.getTypeDeclaration(), STRING.toNullable(),
-                  TypeDescriptors.get().javaLangDouble.getTypeDeclaration(), NUMBER.toNullable(),
-                  TypeDescriptors.get().javaLangBoolean.getTypeDeclaration(), BOOLEAN.toNullable(),
-                  TypeDescriptors.get().javaLangVoid.getTypeDeclaration(), VOID.toNullable()));
+  private static final ContextLocal<Map<TypeDeclaration, ClosureType>>
+      closureTypeByTypeDeclaration =
+          ContextLocal.withInitial(
+              () ->
+                  ImmutableMap.of(
+                      TypeDescriptors.get().javaLangObject.getTypeDeclaration(),
+                      ANY.toNullable(),
+                      TypeDescriptors.get().javaLangString.getTypeDeclaration(),
+                      STRING.toNullable(),
+                      TypeDescriptors.get().javaLangDouble.getTypeDeclaration(),
+                      NUMBER.toNullable(),
+                      TypeDescriptors.get().javaLangBoolean.getTypeDeclaration(),
+                      BOOLEAN.toNullable(),
+                      TypeDescriptors.get().javaLangVoid.getTypeDeclaration(),
+                      VOID.toNullable()));
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.generator;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.j2cl.libraryinfo.LibraryInfo;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The outputs generated for a single compilation unit, recorded so that they can be replayed
+ * instead of regenerated when the unit has not changed.
+ */
+public final class CompilationUnitOutputs {
+  private final ImmutableMap<String, byte[]> contentByRelativePath;
+  private final ImmutableList<String> usedNativeFilePaths;
+  private final Optional<LibraryInfo> libraryInfo;
+
+  @VisibleForTesting
+  public CompilationUnitOutputs(
+      ImmutableMap<String, byte[]> contentByRelativePath,
+      ImmutableList<String> usedNativeFilePaths,
+      Optional<LibraryInfo> libraryInfo) {
+    this.contentByRelativePath = contentByRelativePath;
+    this.usedNativeFilePaths = usedNativeFilePaths;
+    this.libraryInfo = libraryInfo;
+  }
+
+  /** Returns the content of the output files keyed by their path relative to the output root. */
+  public ImmutableMap<String, byte[]> getContentByRelativePath() {
+    return contentByRelativePath;
+  }
+
+  /** Returns the relative paths of the native JavaScript files used by the unit. */
+  public ImmutableList<String> getUsedNativeFilePaths() {
+    return usedNativeFilePaths;
+  }
+
+  /** Returns the library info of the types in the unit, if library info was requested. */
+  public Optional<LibraryInfo> getLibraryInfo() {
+    return libraryInfo;
+  }
+
+  /** Returns an estimate of the memory retained by these outputs. */
+  public long getSizeInBytes() {
+    long size = libraryInfo.map(LibraryInfo::getSerializedSize).orElse(0);
+    for (Map.Entry<String, byte[]> entry : contentByRelativePath.entrySet()) {
+      size += entry.getKey().length() * 2L + entry.getValue().length;
+    }
+    return size;
+  }
+}
@@ -39,7 +39,6 @@ import com.google.j2cl.ast.TypeDescriptors.BootstrapType;
 import com.google.j2cl.ast.TypeVariable;
 import com.google.j2cl.ast.Variable;
 import com.google.j2cl.ast.Visibility;
-import com.google.j2cl.common.FilePosition;
 import com.google.j2cl.common.InternalCompilerError;
 import com.google.j2cl.common.Problems;
 import com.google.j2cl.common.SourcePosition;
@@ -715,17 +714,13 @@ public class JavaScriptImplGenerator extends JavaScriptGenerator {
         sourceBuilder.emitWithMapping(
             SourcePosition.newBuilder()
                 .setStartFilePosition(
-                    FilePosition.newBuilder()
-                        .setLine(nativeSourceLine)
-                        .setColumn(firstNonWhitespaceColumn)
-                        .setByteOffset(currentByteOffset + firstNonWhitespaceColumn)
-                        .build())
+                    nativeSourceLine,
+                    firstNonWhitespaceColumn,
+                    currentByteOffset + firstNonWhitespaceColumn)
                 .setEndFilePosition(
-                    FilePosition.newBuilder()
-                        .setLine(nativeSourceLine)
-                        .setColumn(trimmedLine.length())
-                        .setByteOffset(currentByteOffset + trimmedLine.length())
-                        .build())
+                    nativeSourceLine,
+                    trimmedLine.length(),
+                    currentByteOffset + trimmedLine.length())
                 .setFilePath(nativeSource.getRelativeFilePath())
                 .setName(type.getDeclaration().getQualifiedBinaryName() + ".<native>")
                 .build(),
@@ -15,13 +15,10 @@
  */
 package com.google.j2cl.generator;
 
-import com.google.common.io.MoreFiles;
 import com.google.j2cl.common.FrontendUtils.FileInfo;
 import com.google.j2cl.common.Problems;
 import com.google.j2cl.common.Problems.FatalError;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Paths;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -85,8 +82,7 @@ public class NativeJavaScriptFile {
     Map<String, NativeJavaScriptFile> loadedFilesByPath = new LinkedHashMap<>();
     for (FileInfo file : files) {
       try {
-        String content =
-            MoreFiles.asCharSource(Paths.get(file.sourcePath()), StandardCharsets.UTF_8).read();
+        String content = file.asCharSource().read();
         NativeJavaScriptFile nativeFile = new NativeJavaScriptFile(file.targetPath(), content);
         loadedFilesByPath.put(nativeFile.getPathWithoutExtension(), nativeFile);
       } catch (IOException e) {
@@ -15,22 +15,33 @@
  */
 package com.google.j2cl.generator;
 
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.j2cl.ast.CompilationUnit;
 import com.google.j2cl.ast.Type;
 import com.google.j2cl.ast.TypeDeclaration;
 import com.google.j2cl.common.FrontendUtils;
 import com.google.j2cl.common.FrontendUtils.FileInfo;
 import com.google.j2cl.common.J2clUtils;
+import com.google.j2cl.common.Output;
 import com.google.j2cl.common.Problems;
 import com.google.j2cl.common.Problems.FatalError;
+import com.google.j2cl.common.Profiler;
 import com.google.j2cl.common.SourcePosition;
+import com.google.j2cl.libraryinfo.LibraryInfo;
 import com.google.j2cl.libraryinfo.LibraryInfoBuilder;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import javax.annotation.Nullable;
 
 /**
  * The OutputGeneratorStage contains all necessary information for generating the JavaScript output
@@ -38,144 +49,206 @@ import java.util.Optional;
  * generating header, implementation and sourcemap files for each Java Type.
  */
 public class OutputGeneratorStage {
-  private final List<FileInfo> nativeJavaScriptFiles;
+  private final Map<String, NativeJavaScriptFile> nativeFilesByPath;
+  private final Map<String, FileInfo> sourcesByFilePath;
+  private final LibraryInfoBuilder libraryInfoBuilder = new LibraryInfoBuilder();
+  /** Collects the outputs of the current compilation unit while they are being recorded. */
+  @Nullable private Recorder recorder;
   private final Problems problems;
-  private final Path outputPath;
+  private final Output output;
   private final Optional<Path> libraryInfoOutputPath;
   private final boolean shouldGenerateReadableSourceMaps;
   private final boolean shouldGenerateReadableLibraryInfo;
   private final boolean generateKytheIndexingMetadata;
+  private final Profiler profiler;
 
   public OutputGeneratorStage(
       List<FileInfo> nativeJavaScriptFiles,
-      Path outputPath,
+      Map<String, FileInfo> sourcesByFilePath,
+      Output output,
       Optional<Path> libraryInfoOutputPath,
       boolean shouldGenerateReadableLibraryInfo,
       boolean shouldGenerateReadableSourceMaps,
       boolean generateKytheIndexingMetadata,
+      Profiler profiler,
       Problems problems) {
-    this.nativeJavaScriptFiles = nativeJavaScriptFiles;
-    this.outputPath = outputPath;
+    // The map must be ordered because it will be iterated over later and if it was not ordered then
+    // our output would be unstable. Actually this one can't actually destabilize output but since
+    // it's being safely iterated over now it's best to guard against it being unsafely iterated
+    // over in the future.
+    this.nativeFilesByPath = NativeJavaScriptFile.getMap(nativeJavaScriptFiles, problems);
+    this.sourcesByFilePath = sourcesByFilePath;
+    this.output = output;
     this.libraryInfoOutputPath = libraryInfoOutputPath;
     this.shouldGenerateReadableLibraryInfo = shouldGenerateReadableLibraryInfo;
     this.shouldGenerateReadableSourceMaps = shouldGenerateReadableSourceMaps;
     this.generateKytheIndexingMetadata = generateKytheIndexingMetadata;
+    this.profiler = profiler;
     this.problems = problems;
   }
 
+  /** Generates the output for all the compilation units. */
   public void generateOutputs(List<CompilationUnit> j2clCompilationUnits) {
-    // The map must be ordered because it will be iterated over later and if it was not ordered then
-    // our output would be unstable. Actually this one can't actually destabilize output but since
-    // it's being safely iterated over now it's best to guard against it being unsafely iterated
-    // over in the future.
-    Map<String, NativeJavaScriptFile> nativeFilesByPath =
-        NativeJavaScriptFile.getMap(nativeJavaScriptFiles, problems);
-    LibraryInfoBuilder libraryInfoBuilder = new LibraryInfoBuilder();
-
     for (CompilationUnit j2clCompilationUnit : j2clCompilationUnits) {
-      for (Type type : j2clCompilationUnit.getTypes()) {
-        JavaScriptImplGenerator jsImplGenerator = new JavaScriptImplGenerator(problems, type);
-
-        String typeRelativePath = getRelativePath(type.getDeclaration());
-
-        NativeJavaScriptFile matchingNativeFile =
-            getMatchingNativeFile(nativeFilesByPath, j2clCompilationUnit, type);
-
-        if (matchingNativeFile != null) {
-          jsImplGenerator.setNativeSource(matchingNativeFile);
-          matchingNativeFile.setUsed();
-
-          // Native JsTypes are mere references to external JavaScript types, adding native code
-          // through native.js files does not make sense. Non-native JsEnums on the other hand are
-          // emitted by J2CL but are not JavaScript classes, "native.js" files are not allowed in
-          // this case to avoid surprises.
-          TypeDeclaration typeDeclaration = getUnderlyingTypeDeclaration(type);
-          if (typeDeclaration.isNative() || typeDeclaration.isJsEnum()) {
-            problems.error(
-                "%s '%s' does not support having a '.native.js' file.",
-                typeDeclaration.isJsEnum() ? "JsEnum" : "Native JsType",
-                typeDeclaration.getReadableDescription());
-            continue;
-          }
-
-        } else if (type.containsNonJsNativeMethods()) {
-          problems.error(
-              "Cannot find matching native file '%s'.",
-              typeRelativePath + NativeJavaScriptFile.NATIVE_EXTENSION);
-          continue;
-        }
+      generateOutputs(j2clCompilationUnit);
+    }
+    finishOutputs();
+  }
 
-        String javaScriptImplementationSource = jsImplGenerator.renderOutput();
+  /**
+   * Generates the output for a single compilation unit.
+   *
+   * <p>The unit is not referenced after this method returns. Once all the units have been
+   * processed {@link #finishOutputs} needs to be called.
+   */
+  public void generateOutputs(CompilationUnit j2clCompilationUnit) {
+    for (Type type : j2clCompilationUnit.getTypes()) {
+      JavaScriptImplGenerator jsImplGenerator = new JavaScriptImplGenerator(problems, type);
 
-        JavaScriptHeaderGenerator jsHeaderGenerator = new JavaScriptHeaderGenerator(problems, type);
-        String javaScriptHeaderSource = jsHeaderGenerator.renderOutput();
+      String typeRelativePath = getRelativePath(type.getDeclaration());
 
-        if (generateKytheIndexingMetadata) {
-          // Inline metadata so that Kythe can create edges between these files and the Java source
-          // file.
-          javaScriptHeaderSource +=
-              renderKytheIndexingMetadata(jsHeaderGenerator.getSourceMappings());
-          javaScriptImplementationSource +=
-              renderKytheIndexingMetadata(jsImplGenerator.getSourceMappings());
-        } else {
-          String sourceMap = renderSourceMap(type, jsImplGenerator.getSourceMappings());
-
-          if (sourceMap != null) {
-            javaScriptImplementationSource +=
-                String.format(
-                    "%n//# sourceMappingURL=%s",
-                    type.getDeclaration().getSimpleBinaryName() + SOURCE_MAP_SUFFIX);
-            Path absolutePathForSourceMap =
-                outputPath.resolve(typeRelativePath + SOURCE_MAP_SUFFIX);
-            J2clUtils.writeToFile(absolutePathForSourceMap, sourceMap, problems);
-          }
-        }
+      NativeJavaScriptFile matchingNativeFile =
+          getMatchingNativeFile(nativeFilesByPath, j2clCompilationUnit, type);
 
-        if (shouldGenerateReadableSourceMaps) {
-          outputReadableSourceMap(
-              j2clCompilationUnit,
-              type,
-              javaScriptImplementationSource,
-              jsImplGenerator.getSourceMappings(),
-              matchingNativeFile);
+      if (matchingNativeFile != null) {
+        jsImplGenerator.setNativeSource(matchingNativeFile);
+        matchingNativeFile.setUsed();
+        if (recorder != null) {
+          recorder.usedNativeFilePaths.add(matchingNativeFile.getRelativeFilePath());
         }
 
-        String implRelativePath = typeRelativePath + jsImplGenerator.getSuffix();
-        J2clUtils.writeToFile(
-            outputPath.resolve(implRelativePath), javaScriptImplementationSource, problems);
+        // Native JsTypes are mere references to external JavaScript types, adding native code
+        // through native.js files does not make sense. Non-native JsEnums on the other hand are
+        // emitted by J2CL but are not JavaScript classes, "native.js" files are not allowed in
+        // this case to avoid surprises.
+        TypeDeclaration typeDeclaration = getUnderlyingTypeDeclaration(type);
+        if (typeDeclaration.isNative() || typeDeclaration.isJsEnum()) {
+          problems.error(
+              "%s '%s' does not support having a '.native.js' file.",
+              typeDeclaration.isJsEnum() ? "JsEnum" : "Native JsType",
+              typeDeclaration.getReadableDescription());
+          continue;
+        }
 
-        String headerRelativePath = typeRelativePath + jsHeaderGenerator.getSuffix();
-        J2clUtils.writeToFile(
-            outputPath.resolve(headerRelativePath), javaScriptHeaderSource, problems);
+      } else if (type.containsNonJsNativeMethods()) {
+        problems.error(
+            "Cannot find matching native file '%s'.",
+            typeRelativePath + NativeJavaScriptFile.NATIVE_EXTENSION);
+        continue;
+      }
 
-        if (libraryInfoOutputPath.isPresent() || shouldGenerateReadableLibraryInfo) {
-          libraryInfoBuilder.addType(
-              type,
-              headerRelativePath,
-              implRelativePath,
-              jsImplGenerator.getOutputSourceInfoByMember());
+      String javaScriptImplementationSource =
+          profiler.profile("generator", "JavaScriptImplGenerator", jsImplGenerator::renderOutput);
+
+      JavaScriptHeaderGenerator jsHeaderGenerator = new JavaScriptHeaderGenerator(problems, type);
+      String javaScriptHeaderSource =
+          profiler.profile(
+              "generator", "JavaScriptHeaderGenerator", jsHeaderGenerator::renderOutput);
+
+      if (generateKytheIndexingMetadata) {
+        // Inline metadata so that Kythe can create edges between these files and the Java source
+        // file.
+        javaScriptHeaderSource +=
+            renderKytheIndexingMetadata(jsHeaderGenerator.getSourceMappings());
+        javaScriptImplementationSource +=
+            renderKytheIndexingMetadata(jsImplGenerator.getSourceMappings());
+      } else {
+        String sourceMap =
+            profiler.profile(
+                "generator",
+                "SourceMapGeneratorStage",
+                () -> renderSourceMap(type, jsImplGenerator.getSourceMappings()));
+
+        if (sourceMap != null) {
+          javaScriptImplementationSource +=
+              String.format(
+                  "%n//# sourceMappingURL=%s",
+                  type.getDeclaration().getSimpleBinaryName() + SOURCE_MAP_SUFFIX);
+          writeOutput(typeRelativePath + SOURCE_MAP_SUFFIX, sourceMap);
         }
+      }
 
-        if (matchingNativeFile != null) {
-          copyNativeJsFileToOutput(matchingNativeFile);
-        }
+      if (shouldGenerateReadableSourceMaps) {
+        outputReadableSourceMap(
+            j2clCompilationUnit,
+            type,
+            javaScriptImplementationSource,
+            jsImplGenerator.getSourceMappings(),
+            matchingNativeFile);
       }
 
-      if (!generateKytheIndexingMetadata) {
-        copyJavaSourcesToOutput(j2clCompilationUnit);
+      String implRelativePath = typeRelativePath + jsImplGenerator.getSuffix();
+      writeOutput(implRelativePath, javaScriptImplementationSource);
+
+      String headerRelativePath = typeRelativePath + jsHeaderGenerator.getSuffix();
+      writeOutput(headerRelativePath, javaScriptHeaderSource);
+
+      if (shouldGenerateLibraryInfo()) {
+        profiler.profile(
+            "generator",
+            "LibraryInfoBuilder",
+            () ->
+                getUnitLibraryInfoBuilder()
+                    .addType(
+                        type,
+                        headerRelativePath,
+                        implRelativePath,
+                        jsImplGenerator.getOutputSourceInfoByMember()));
       }
+
+      if (matchingNativeFile != null) {
+        copyNativeJsFileToOutput(matchingNativeFile);
+      }
+    }
+
+    if (!generateKytheIndexingMetadata) {
+      copyJavaSourcesToOutput(j2clCompilationUnit);
+    }
+  }
+
+  /**
+   * Generates the output for a single compilation unit and returns it, so that it can be replayed
+   * by {@link #replayOutputs} in a later compilation.
+   */
+  public CompilationUnitOutputs generateAndRecordOutputs(CompilationUnit j2clCompilationUnit) {
+    checkState(recorder == null);
+    recorder = new Recorder();
+    try {
+      generateOutputs(j2clCompilationUnit);
+      Optional<LibraryInfo> libraryInfo =
+          shouldGenerateLibraryInfo()
+              ? Optional.of(recorder.libraryInfoBuilder.build())
+              : Optional.empty();
+      libraryInfo.ifPresent(libraryInfoBuilder::addLibraryInfo);
+      return new CompilationUnitOutputs(
+          ImmutableMap.copyOf(recorder.contentByRelativePath),
+          ImmutableList.copyOf(recorder.usedNativeFilePaths),
+          libraryInfo);
+    } finally {
+      recorder = null;
     }
+  }
 
+  /** Writes the outputs recorded for a compilation unit by {@link #generateAndRecordOutputs}. */
+  public void replayOutputs(CompilationUnitOutputs outputs) {
+    outputs.getContentByRelativePath().forEach(output::write);
+    for (String nativeFilePath : outputs.getUsedNativeFilePaths()) {
+      nativeFilesByPath.values().stream()
+          .filter(nativeFile -> nativeFile.getRelativeFilePath().equals(nativeFilePath))
+          .forEach(NativeJavaScriptFile::setUsed);
+    }
+    outputs.getLibraryInfo().ifPresent(libraryInfoBuilder::addLibraryInfo);
+  }
+
+  /** Writes the outputs that span the whole library and reports the unused native files. */
+  public void finishOutputs() {
     if (libraryInfoOutputPath.isPresent()) {
       J2clUtils.writeToFile(
           libraryInfoOutputPath.get(), libraryInfoBuilder.toByteArray(), problems);
     }
 
     if (shouldGenerateReadableLibraryInfo) {
-      J2clUtils.writeToFile(
-          outputPath.resolve("library_info_debug.json"),
-          libraryInfoBuilder.toJson(problems),
-          problems);
+      output.write("library_info_debug.json", libraryInfoBuilder.toJson(problems));
     }
 
     // Error if any of the native implementation files were not used.
@@ -241,9 +314,8 @@ public class OutputGeneratorStage {
             j2clUnit.getFilePath(),
             problems);
     if (!readableOutput.isEmpty()) {
-      Path absolutePathForReadableSourceMap =
-          outputPath.resolve(getRelativePath(type.getDeclaration()) + READABLE_MAPPINGS_SUFFIX);
-      J2clUtils.writeToFile(absolutePathForReadableSourceMap, readableOutput, problems);
+      writeOutput(
+          getRelativePath(type.getDeclaration()) + READABLE_MAPPINGS_SUFFIX, readableOutput);
     }
   }
 
@@ -252,14 +324,57 @@ public class OutputGeneratorStage {
    * and having it available as output simplifies the process of source debugging in the browser.
    */
   private void copyJavaSourcesToOutput(CompilationUnit j2clUnit) {
-    String relativePath = getRelativePath(j2clUnit);
-    Path absolutePath = outputPath.resolve(relativePath + ".java");
-    J2clUtils.copyFile(Paths.get(j2clUnit.getFilePath()), absolutePath, problems);
+    String relativePath = getRelativePath(j2clUnit) + ".java";
+    FileInfo source =
+        sourcesByFilePath.getOrDefault(
+            j2clUnit.getFilePath(), FileInfo.create(j2clUnit.getFilePath(), relativePath));
+    if (recorder == null) {
+      output.copyFile(source, relativePath);
+      return;
+    }
+
+    try {
+      writeOutput(relativePath, source.asByteSource().read());
+    } catch (IOException e) {
+      problems.fatal(FatalError.CANNOT_COPY_FILE, e.toString());
+    }
   }
 
   private void copyNativeJsFileToOutput(NativeJavaScriptFile nativeJavaScriptFile) {
-    Path absolutePath = outputPath.resolve(nativeJavaScriptFile.getRelativeFilePath());
-    J2clUtils.writeToFile(absolutePath, nativeJavaScriptFile.getContent(), problems);
+    writeOutput(nativeJavaScriptFile.getRelativeFilePath(), nativeJavaScriptFile.getContent());
+  }
+
+  /** Writes an output file of the current compilation unit. */
+  private void writeOutput(String relativePath, String content) {
+    if (recorder == null) {
+      output.write(relativePath, content);
+      return;
+    }
+    // Output.write terminates text files with a line separator, do the same so that replayed
+    // outputs are identical to the generated ones.
+    writeOutput(relativePath, (content + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void writeOutput(String relativePath, byte[] content) {
+    if (recorder != null) {
+      recorder.contentByRelativePath.put(relativePath, content);
+    }
+    output.write(relativePath, content);
+  }
+
+  private LibraryInfoBuilder getUnitLibraryInfoBuilder() {
+    return recorder != null ? recorder.libraryInfoBuilder : libraryInfoBuilder;
+  }
+
+  private boolean shouldGenerateLibraryInfo() {
+    return libraryInfoOutputPath.isPresent() || shouldGenerateReadableLibraryInfo;
+  }
+
+  /** Collects the outputs of the compilation unit that is being generated. */
+  private static class Recorder {
+    private final Map<String, byte[]> contentByRelativePath = new LinkedHashMap<>();
+    private final List<String> usedNativeFilePaths = new ArrayList<>();
+    private final LibraryInfoBuilder libraryInfoBuilder = new LibraryInfoBuilder();
   }
 
   /** Returns the relative output path for a given type. */
@@ -22,7 +22,7 @@ import com.google.common.base.CharMatcher;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.j2cl.ast.Member;
-import com.google.j2cl.common.FilePosition;
+import com.google.j2cl.common.LineTable;
 import com.google.j2cl.common.SourcePosition;
 import java.util.HashMap;
 import java.util.Map;
@@ -45,6 +45,7 @@ class SourceBuilder {
   private int currentLine = 0;
   private int currentColumn = 0;
   private int currentIndentation = 0;
+  private final LineTable lineTable = LineTable.create();
   private final SortedMap<SourcePosition, SourcePosition> javaSourceInfoByOutputSourceInfo =
       new TreeMap<>();
   private final Map<Member, SourcePosition> outputSourceInfoByMember = new HashMap<>();
@@ -87,16 +88,18 @@ class SourceBuilder {
   }
 
   private Optional<SourcePosition> emit(Runnable codeEmitter) {
-    FilePosition startPosition = getCurrentPosition();
+    int startLine = currentLine;
+    int startColumn = currentColumn;
+    int startByteOffset = sb.length();
     codeEmitter.run();
-    FilePosition endPosition = getCurrentPosition();
-    if (endPosition.equals(startPosition)) {
+    if (sb.length() == startByteOffset) {
       return Optional.empty();
     }
     return Optional.of(
         SourcePosition.newBuilder()
-            .setStartFilePosition(startPosition)
-            .setEndFilePosition(endPosition)
+            .setLineTable(lineTable)
+            .setStartFilePosition(startLine, startColumn, startByteOffset)
+            .setEndFilePosition(currentLine, currentColumn, sb.length())
             .build());
   }
 
@@ -110,10 +113,9 @@ class SourceBuilder {
     if (sb.length() != 0) {
       emitWithMapping(
           SourcePosition.newBuilder()
-              .setStartFilePosition(
-                  FilePosition.newBuilder().setLine(0).setColumn(0).setByteOffset(0).build())
-              .setEndFilePosition(
-                  FilePosition.newBuilder().setLine(0).setColumn(0).setByteOffset(0).build())
+              .setLineTable(lineTable)
+              .setStartFilePosition(0, 0, 0)
+              .setEndFilePosition(0, 0, 0)
               .build(),
           () -> append(" "));
     }
@@ -183,12 +185,4 @@ class SourceBuilder {
     }
     append("}");
   }
-
-  private FilePosition getCurrentPosition() {
-    return FilePosition.newBuilder()
-        .setLine(currentLine)
-        .setColumn(currentColumn)
-        .setByteOffset(sb.length())
-        .build();
-  }
 }
@@ -224,12 +224,59 @@ public final class LibraryInfoBuilder {
         .build();
   }
 
+  /**
+   * Adds the types of a library info that was built separately, e.g. for a single compilation unit.
+   *
+   * <p>Type ids are remapped in the order in which they were assigned in {@code libraryInfo}, so
+   * the result is the same as if the types had been added to this builder directly.
+   */
+  public void addLibraryInfo(LibraryInfo libraryInfo) {
+    int[] typeIdByLocalTypeId = new int[libraryInfo.getTypeMapCount()];
+    for (int localTypeId = NULL_TYPE + 1; localTypeId < typeIdByLocalTypeId.length; localTypeId++) {
+      typeIdByLocalTypeId[localTypeId] = getTypeId(libraryInfo.getTypeMap(localTypeId));
+    }
+
+    for (TypeInfo typeInfo : libraryInfo.getTypeList()) {
+      TypeInfo.Builder typeInfoBuilder =
+          typeInfo.toBuilder()
+              .setTypeId(typeIdByLocalTypeId[typeInfo.getTypeId()])
+              .setExtendsType(typeIdByLocalTypeId[typeInfo.getExtendsType()])
+              .clearImplementsType()
+              .clearMember();
+      typeInfo.getImplementsTypeList().stream()
+          .map(localTypeId -> typeIdByLocalTypeId[localTypeId])
+          .forEach(typeInfoBuilder::addImplementsType);
+
+      for (MemberInfo memberInfo : typeInfo.getMemberList()) {
+        MemberInfo.Builder memberInfoBuilder =
+            memberInfo.toBuilder().clearInvokedMethods().clearReferencedTypes();
+        memberInfo.getInvokedMethodsList().stream()
+            .map(
+                methodInvocation ->
+                    methodInvocation.toBuilder()
+                        .setEnclosingType(typeIdByLocalTypeId[methodInvocation.getEnclosingType()])
+                        .build())
+            .forEach(memberInfoBuilder::addInvokedMethods);
+        memberInfo.getReferencedTypesList().stream()
+            .map(localTypeId -> typeIdByLocalTypeId[localTypeId])
+            .forEach(memberInfoBuilder::addReferencedTypes);
+        typeInfoBuilder.addMember(memberInfoBuilder);
+      }
+
+      this.libraryInfo.addType(typeInfoBuilder);
+    }
+  }
+
   private int getTypeId(DeclaredTypeDescriptor typeDescriptor) {
+    return getTypeId(typeDescriptor.getQualifiedJsName());
+  }
+
+  private int getTypeId(String qualifiedJsName) {
     // Note that the IDs start from '1' to reserve '0' for NULL_TYPE.
-    return types.computeIfAbsent(typeDescriptor.getQualifiedJsName(), x -> types.size() + 1);
+    return types.computeIfAbsent(qualifiedJsName, x -> types.size() + 1);
   }
 
-  private LibraryInfo build() {
+  public LibraryInfo build() {
     libraryInfo.clearTypeMap();
     String[] typeMap = new String[types.size() + 1];
     typeMap[NULL_TYPE] = "<no-type>";
@@ -17,16 +17,20 @@ import com.google.common.base.Ascii;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.j2cl.bazel.BazelWorker;
+import com.google.j2cl.common.ClasspathEnvironmentCache;
 import com.google.j2cl.common.FrontendUtils;
 import com.google.j2cl.common.FrontendUtils.FileInfo;
-import com.google.j2cl.common.J2clUtils;
+import com.google.j2cl.common.Output;
 import com.google.j2cl.common.Problems;
+import com.google.j2cl.common.Profiler;
 import com.google.j2cl.frontend.Frontend;
+import com.google.j2cl.transpiler.J2clTranspilerOptions.VerificationLevel;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.kohsuke.args4j.Argument;
 import org.kohsuke.args4j.Option;
 
@@ -80,13 +84,110 @@ final class BazelJ2clBuilder extends BazelWorker {
       hidden = true)
   protected boolean experimentalOptimizeAutovalue = false;
 
+  @Option(
+      name = "-fusepasses",
+      usage = "Applies adjacent fusible normalization passes in a single traversal.",
+      hidden = true)
+  protected boolean fusePasses = false;
+
+  @Option(
+      name = "-pipelined",
+      usage =
+          "Normalizes and generates the output of one compilation unit at a time to reduce peak"
+              + " memory.",
+      hidden = true)
+  protected boolean pipelinedTranspilation = false;
+
+  @Option(
+      name = "-verificationlevel",
+      metaVar = "(OFF | SAMPLED | FULL)",
+      usage =
+          "Select how many compilation units have their AST verified: "
+              + "OFF, SAMPLED (default), FULL.",
+      hidden = true)
+  protected VerificationLevel verificationLevel = VerificationLevel.SAMPLED;
+
+  @Option(
+      name = "-incremental",
+      usage =
+          "Reuses the outputs of the compilation units whose inputs did not change since a previous"
+              + " request to this worker.",
+      hidden = true)
+  protected boolean incremental = false;
+
+  @Option(
+      name = "-profile",
+      usage =
+          "Records the time and allocations of each compilation stage into a JSON file next to the"
+              + " output.",
+      hidden = true)
+  protected boolean profile = false;
+
+  @Option(
+      name = "-uncompressedoutput",
+      usage =
+          "Stores the files in the output zip without compression, which is faster to write and to"
+              + " read when the output is consumed right away.",
+      hidden = true)
+  protected boolean uncompressedOutput = false;
+
+  @Option(
+      name = "-skipgwtincompatiblecheck",
+      usage =
+          "Skips checking for GwtIncompatible members, for sources that already went through the"
+              + " GwtIncompatible stripper.",
+      hidden = true)
+  protected boolean skipGwtIncompatibleCheck = false;
+
+  private static final String PROFILE_SUFFIX = ".profile.json";
+
+  /** The outputs cached by this worker for incremental compilation, shared across requests. */
+  private static final TranspilationCache transpilationCache =
+      new TranspilationCache(Long.getLong("j2cl.incrementalCacheSizeBytes", 512L * 1024 * 1024));
+
+  /** The classpath jars retained by this worker, shared across requests. */
+  private static final ClasspathEnvironmentCache classpathEnvironmentCache =
+      ClasspathEnvironmentCache.create(Integer.getInteger("j2cl.classpathCacheMaxJars", 256));
+
+  static {
+    registerCache(
+        "transpilation", transpilationCache::getHitCount, transpilationCache::getMissCount);
+    registerCache(
+        "classpath",
+        classpathEnvironmentCache::getHitCount,
+        classpathEnvironmentCache::getMissCount);
+  }
+
   /** Temporary flag to select the frontend during the transition to javac. */
   private static final Frontend FRONTEND =
       Frontend.valueOf(Ascii.toUpperCase(System.getProperty("j2cl.frontend", "jdt")));
 
   @Override
   protected Problems run() {
-    return J2clTranspiler.transpile(createOptions());
+    if (!isCollectingStats()) {
+      return J2clTranspiler.transpile(createOptions());
+    }
+
+    long startNanos = System.nanoTime();
+    Profiler profiler = Profiler.create();
+    Problems problems =
+        J2clTranspiler.transpile(createOptions().toBuilder().setProfiler(profiler).build());
+    recordStats(profiler, System.nanoTime() - startNanos);
+    return problems;
+  }
+
+  private void recordStats(Profiler profiler, long totalNanos) {
+    Map<String, Long> wallNanosByCategory = profiler.getWallNanosByCategory();
+    long parseNanos = wallNanosByCategory.getOrDefault("frontend", 0L);
+    long outputNanos =
+        wallNanosByCategory.getOrDefault("generator", 0L)
+            + wallNanosByCategory.getOrDefault("output", 0L);
+    recordTime("parse", parseNanos);
+    // Passes might run in parallel, so the transpile time is what is left of the wall time rather
+    // than the sum of the passes.
+    recordTime("transpile", Math.max(0, totalNanos - parseNanos - outputNanos));
+    recordTime("output", outputNanos);
+    profiler.getCounts().forEach(this::recordCount);
   }
 
   private J2clTranspilerOptions createOptions() {
@@ -97,7 +198,11 @@ final class BazelJ2clBuilder extends BazelWorker {
       this.readableSourceMaps = false;
     }
 
-    Path outputPath = getZipOutput(this.output, problems);
+    Output output =
+        Output.toZip(
+            Paths.get(this.output),
+            this.uncompressedOutput ? Output.Compression.STORED : Output.Compression.DEFLATED,
+            problems);
     Path libraryInfoOutputPath = Paths.get(this.libraryInfoOutput);
 
     List<FileInfo> allSources =
@@ -117,29 +222,36 @@ final class BazelJ2clBuilder extends BazelWorker {
     // Directly put all supplied js sources into the zip file.
     allSources.stream()
         .filter(p -> p.sourcePath().endsWith(".js") && !p.sourcePath().endsWith("native.js"))
-        .forEach(
-            f ->
-                J2clUtils.copyFile(
-                    Paths.get(f.sourcePath()), outputPath.resolve(f.targetPath()), problems));
+        .forEach(f -> output.copyFile(f, f.targetPath()));
+
+    J2clTranspilerOptions.Builder optionsBuilder = J2clTranspilerOptions.newBuilder();
+    if (this.profile) {
+      optionsBuilder.setProfileOutput(Paths.get(this.output + PROFILE_SUFFIX));
+    }
+    if (this.incremental) {
+      optionsBuilder.setTranspilationCache(transpilationCache);
+    }
 
-    return J2clTranspilerOptions.newBuilder()
+    return optionsBuilder
         .setSources(allJavaSources)
         .setNativeSources(allNativeSources)
         .setClasspaths(getPathEntries(this.classPath))
-        .setOutput(outputPath)
+        .setClasspathEnvironmentCache(classpathEnvironmentCache)
+        .setInputDigests(getInputDigests())
+        .setOutput(output)
         .setLibraryInfoOutput(libraryInfoOutputPath)
         .setEmitReadableLibraryInfo(readableLibraryInfo)
         .setEmitReadableSourceMap(this.readableSourceMaps)
         .setGenerateKytheIndexingMetadata(this.generateKytheIndexingMetadata)
         .setExperimentalOptimizeAutovalue(this.experimentalOptimizeAutovalue)
+        .setFusePasses(this.fusePasses)
+        .setPipelinedTranspilation(this.pipelinedTranspilation)
+        .setCheckGwtIncompatible(!this.skipGwtIncompatibleCheck)
+        .setVerificationLevel(this.verificationLevel)
         .setFrontend(FRONTEND)
         .build();
   }
 
-  private static Path getZipOutput(String output, Problems problems) {
-    return FrontendUtils.initZipOutput(output, problems).getPath("/");
-  }
-
   private static List<String> getPathEntries(String path) {
     List<String> entries = new ArrayList<>();
     for (String entry : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(path)) {
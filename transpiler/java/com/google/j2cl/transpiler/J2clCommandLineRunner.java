@@ -20,12 +20,11 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.j2cl.common.CommandLineTool;
 import com.google.j2cl.common.FrontendUtils;
+import com.google.j2cl.common.Output;
 import com.google.j2cl.common.Problems;
-import com.google.j2cl.common.Problems.FatalError;
 import com.google.j2cl.frontend.Frontend;
+import com.google.j2cl.transpiler.J2clTranspilerOptions.VerificationLevel;
 import java.io.File;
-import java.nio.file.FileSystem;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -72,6 +71,37 @@ public final class J2clCommandLineRunner extends CommandLineTool {
       hidden = true)
   protected boolean generateKytheIndexingMetadata = false;
 
+  @Option(
+      name = "-fusepasses",
+      usage = "Applies adjacent fusible normalization passes in a single traversal.",
+      hidden = true)
+  protected boolean fusePasses = false;
+
+  @Option(
+      name = "-pipelined",
+      usage =
+          "Normalizes and generates the output of one compilation unit at a time to reduce peak"
+              + " memory.",
+      hidden = true)
+  protected boolean pipelinedTranspilation = false;
+
+  @Option(
+      name = "-verificationlevel",
+      metaVar = "(OFF | SAMPLED | FULL)",
+      usage =
+          "Select how many compilation units have their AST verified: "
+              + "OFF, SAMPLED, FULL (default).",
+      hidden = true)
+  protected VerificationLevel verificationLevel = VerificationLevel.FULL;
+
+  @Option(
+      name = "-profile",
+      usage =
+          "Records the time and allocations of each compilation stage into a JSON file next to the"
+              + " output.",
+      hidden = true)
+  protected boolean profile = false;
+
   @Option(
       name = "-frontend",
       metaVar = "(JDT | JAVAC)",
@@ -79,6 +109,8 @@ public final class J2clCommandLineRunner extends CommandLineTool {
       hidden = true)
   protected Frontend frontEnd = Frontend.JDT;
 
+  private static final String PROFILE_SUFFIX = ".profile.json";
+
   private J2clCommandLineRunner() {
     super("j2cl");
   }
@@ -98,7 +130,15 @@ public final class J2clCommandLineRunner extends CommandLineTool {
       this.readableSourceMaps = false;
     }
 
-    return J2clTranspilerOptions.newBuilder()
+    J2clTranspilerOptions.Builder optionsBuilder = J2clTranspilerOptions.newBuilder();
+    if (this.profile) {
+      // Place the profile next to the output zip or directory.
+      Path outputPath = Paths.get(this.output).toAbsolutePath().normalize();
+      optionsBuilder.setProfileOutput(
+          outputPath.resolveSibling(outputPath.getFileName() + PROFILE_SUFFIX));
+    }
+
+    return optionsBuilder
         .setSources(
             FrontendUtils.getAllSources(this.files, problems)
                 .filter(p -> p.sourcePath().endsWith(".java"))
@@ -110,28 +150,18 @@ public final class J2clCommandLineRunner extends CommandLineTool {
         .setClasspaths(getPathEntries(this.classPath))
         .setOutput(
             this.output.endsWith(".zip")
-                ? getZipOutput(this.output, problems)
-                : getDirOutput(this.output, problems))
+                ? Output.toZip(Paths.get(this.output), Output.Compression.DEFLATED, problems)
+                : Output.toDirectory(Paths.get(this.output), problems))
         .setEmitReadableSourceMap(this.readableSourceMaps)
         .setEmitReadableLibraryInfo(false)
         .setGenerateKytheIndexingMetadata(this.generateKytheIndexingMetadata)
+        .setFusePasses(this.fusePasses)
+        .setPipelinedTranspilation(this.pipelinedTranspilation)
+        .setVerificationLevel(this.verificationLevel)
         .setFrontend(this.frontEnd)
         .build();
   }
 
-  private static Path getDirOutput(String output, Problems problems) {
-    Path outputPath = Paths.get(output);
-    if (Files.isRegularFile(outputPath)) {
-      problems.fatal(FatalError.OUTPUT_LOCATION, outputPath);
-    }
-    return outputPath;
-  }
-
-  private static Path getZipOutput(String output, Problems problems) {
-    FileSystem newFileSystem = FrontendUtils.initZipOutput(output, problems);
-    return newFileSystem == null ? null : newFileSystem.getPath("/");
-  }
-
   private static List<String> getPathEntries(String path) {
     List<String> entries = new ArrayList<>();
     for (String entry : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(path)) {
@@ -13,9 +13,7 @@
  */
 package com.google.j2cl.transpiler;
 
-import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
-import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.j2cl.ast.CompilationUnit;
 import com.google.j2cl.ast.visitors.ArrayAccessNormalizer;
 import com.google.j2cl.ast.visitors.BridgeMethodsCreator;
@@ -27,6 +25,7 @@ import com.google.j2cl.ast.visitors.DevirtualizeMethodCalls;
 import com.google.j2cl.ast.visitors.ExpandCompoundAssignments;
 import com.google.j2cl.ast.visitors.FilloutMissingSourceMapInformation;
 import com.google.j2cl.ast.visitors.FixSuperCallQualifiers;
+import com.google.j2cl.ast.visitors.FusedNormalizationPass;
 import com.google.j2cl.ast.visitors.ImplementAssertStatements;
 import com.google.j2cl.ast.visitors.ImplementInstanceInitialization;
 import com.google.j2cl.ast.visitors.ImplementLambdaExpressions;
@@ -87,60 +86,94 @@ import com.google.j2cl.ast.visitors.VerifyNormalizedUnits;
 import com.google.j2cl.ast.visitors.VerifyParamAndArgCounts;
 import com.google.j2cl.ast.visitors.VerifySingleAstReference;
 import com.google.j2cl.ast.visitors.VerifyVariableScoping;
+import com.google.j2cl.common.CompilationContext;
+import com.google.j2cl.common.ConcurrentInterner;
+import com.google.j2cl.common.FileDigests;
+import com.google.j2cl.common.FrontendUtils.FileInfo;
 import com.google.j2cl.common.Problems;
 import com.google.j2cl.common.Problems.FatalError;
+import com.google.j2cl.common.Profiler;
+import com.google.j2cl.generator.CompilationUnitOutputs;
 import com.google.j2cl.generator.OutputGeneratorStage;
 import java.io.IOException;
-import java.nio.file.FileSystem;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.Map;
 
 /** Translation tool for generating JavaScript source files from Java sources. */
 public class J2clTranspiler {
 
-  /** Runs the entire J2CL pipeline. */
+  /**
+   * Runs the entire J2CL pipeline.
+   *
+   * <p>The compiler has no static state, but rather uses state that is local to the compilation
+   * context of the current thread (see CompilationContext). Each call runs in a fresh context so
+   * that compilations that run one after the other in the same thread do not see each other's
+   * types and bindings.
+   */
   public static Problems transpile(J2clTranspilerOptions options) {
-    // Compiler has no static state, but rather uses thread local variables.
-    // Because of this, we invoke the compiler on a different thread each time.
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
-    Future<Problems> result =
-        executorService.submit(() -> new J2clTranspiler(options).transpileImpl());
-    // Shutdown the executor service since it will only run a single transpilation. If not shutdown
-    // it prevents the JVM from ending the process (see Executors.newFixedThreadPool()). This is not
-    // normally observed since the transpiler in normal circumstances ends with System.exit() which
-    // ends all threads. But when the transpilation throws an exception, the exception propagates
-    // out of main() and the process lingers due the live threads from these executors.
-    executorService.shutdown();
-
-    try {
-      return Uninterruptibles.getUninterruptibly(result);
-    } catch (ExecutionException e) {
-      // Try unwrapping the cause...
-      Throwables.throwIfUnchecked(e.getCause());
-      throw new AssertionError(e.getCause());
-    }
+    return new CompilationContext().call(() -> new J2clTranspiler(options).transpileImpl());
   }
 
+  /** With sampled verification, one in this many compilation units is verified. */
+  private static final int VERIFICATION_SAMPLING_RATE = 10;
+
   private final Problems problems = new Problems();
   private final J2clTranspilerOptions options;
+  private final Profiler profiler;
+  /** The sources keyed by the file path of the compilation units created from them. */
+  private final Map<String, FileInfo> sourcesByFilePath = new HashMap<>();
 
   private J2clTranspiler(J2clTranspilerOptions options) {
     this.options = options;
+    for (FileInfo source : options.getSources()) {
+      // The frontends name the units by their target path when generating Kythe metadata.
+      sourcesByFilePath.put(
+          options.getGenerateKytheIndexingMetadata() ? source.targetPath() : source.sourcePath(),
+          source);
+    }
+    this.profiler =
+        options
+            .getProfiler()
+            .orElseGet(
+                () ->
+                    options.getProfileOutput().isPresent()
+                        ? Profiler.create()
+                        : Profiler.disabled());
   }
 
   private Problems transpileImpl() {
+    FileDigests.useKnownDigests(options.getInputDigests());
     try {
+      // The list is copied so that pipelined transpilation can release the units as it goes.
       List<CompilationUnit> j2clUnits =
-          options
-              .getFrontend()
-              .getCompilationUnits(
-                  options.getClasspaths(),
-                  options.getSources(),
-                  options.getGenerateKytheIndexingMetadata(),
-                  problems);
+          new ArrayList<>(
+              profiler.profile(
+                  "frontend",
+                  options.getFrontend().name(),
+                  () ->
+                      options
+                          .getFrontend()
+                          .getCompilationUnits(
+                              options.getClasspaths(),
+                              options.getSources(),
+                              options.getGenerateKytheIndexingMetadata(),
+                              options.getCheckGwtIncompatible(),
+                              options.getClasspathEnvironmentCache(),
+                              problems)));
+      profiler.count("units", j2clUnits.size());
+      profiler.count("types", j2clUnits.stream().mapToLong(u -> u.getTypes().size()).sum());
+      if (options.getTranspilationCache().isPresent()) {
+        transpileUnitsIncrementally(j2clUnits, options.getTranspilationCache().get());
+        return problems;
+      }
+
+      if (options.getPipelinedTranspilation()) {
+        transpileUnitsPipelined(j2clUnits);
+        return problems;
+      }
+
       if (!j2clUnits.isEmpty()) {
         checkUnits(j2clUnits);
         normalizeUnits(j2clUnits);
@@ -150,159 +183,331 @@ public class J2clTranspiler {
     } catch (Problems.Exit e) {
       return e.getProblems();
     } finally {
-      maybeCloseFileSystem();
+      closeOutput();
+      options.getFrontend().finishCompilation();
+      recordInternerCounts();
+      maybeWriteProfile();
     }
   }
 
   private void checkUnits(List<CompilationUnit> j2clUnits) {
-    JsInteropRestrictionsChecker.check(j2clUnits, problems);
+    profiler.profile(
+        "checker",
+        "JsInteropRestrictionsChecker",
+        () -> JsInteropRestrictionsChecker.check(j2clUnits, problems));
     problems.abortIfHasErrors();
   }
 
-  private static void normalizeUnits(List<CompilationUnit> j2clUnits) {
-    // TODO(b/117155139): Review the ordering of passes.
-    List<NormalizationPass> passes =
-        ImmutableList.of(
-            // Class structure normalizations.
-            new ImplementLambdaExpressions(),
-            new OptimizeAnonymousInnerClassesToFunctionExpressions(),
-            new NormalizeFunctionExpressions(),
-            // Default constructors and explicit super calls should be synthesized first.
-            new CreateDefaultConstructors(),
-            new InsertExplicitSuperCalls(),
-            new DefaultMethodsResolver(),
-            new PackagePrivateMethodsDispatcher(),
-            new BridgeMethodsCreator(),
-            new JsBridgeMethodsCreator(),
-            // TODO(b/31865368): Remove RewriteStringEquals pass once delayed field initialization
-            //  is introduced and String.java gets updated to use it.
-            new RewriteStringEquals(),
-            new DevirtualizeBoxedTypesAndJsFunctionImplementations(),
-            new NormalizeTryWithResources(),
-            new NormalizeCatchClauses(),
-            // Runs before normalizing nested classes.
-            new InsertCastOnNewInstances(),
-            // Must run before Enum normalization
-            new FixSuperCallQualifiers(),
-
-            // Runs after all passes that synthesize overlays.
-            new NormalizeEnumClasses(),
-            new NormalizeJsEnums(),
-            new NormalizeOverlayMembers(),
-            new NormalizeInterfaceMethods(),
-            // End of class structure normalization.
-
-            // Statement/Expression normalizations
-            new NormalizeArrayLiterals(),
-            new NormalizeStaticMemberQualifiers(),
-            // Runs after NormalizeStaticMemberQualifiersPass.
-            new DevirtualizeMethodCalls(),
-            new ControlStatementFormatter(),
-            new NormalizeMultiExpressions(),
-            // Runs after NormalizeMultiExpressions to make sure it only sees valid l-values.
-            new ExpandCompoundAssignments(),
-            new InsertErasureTypeSafetyCasts(),
-            // Runs before unboxing conversion.
-            new InsertStringConversions(),
-            new InsertNarrowingReferenceConversions(),
-            new InsertUnboxingConversions(),
-            new InsertBoxingConversions(),
-            new InsertNarrowingPrimitiveConversions(),
-            new InsertWideningPrimitiveConversions(),
-            new NormalizeLongs(),
-            new InsertDivisionCoercions(),
-            new InsertBitwiseOperatorBooleanCoercions(),
-            new InsertUnsignedRightShiftCoercions(),
-            new NormalizeJsFunctionPropertyInvocations(),
-            // Run before other passes that normalize JsEnum expressions, but after all the normal
-            // Java semantic conversions.
-            new InsertJsEnumBoxingAndUnboxingConversions(),
-            new NormalizeSwitchStatements(),
-            new ArrayAccessNormalizer(),
-            new ImplementAssertStatements(),
-            new ImplementSynchronizedStatements(),
-            new NormalizeFieldInitialization(),
-            new ImplementInstanceInitialization(),
-            new NormalizeNestedClassConstructors(),
-            new NormalizeConstructors(),
-            new NormalizeTypeLiterals(),
-            new NormalizeCasts(),
-            new NormalizeInstanceOfs(),
-            new NormalizeEquality(),
-            new NormalizeStaticNativeMemberReferences(),
-            new NormalizeJsVarargs(),
-            new NormalizeArrayCreations(),
-            new InsertExceptionConversions(),
-            new NormalizeLiterals(),
-
-            // Needs to run after passes that do code synthesis are run so that it handles the
-            // synthesize code as well.
-            // TODO(b/35241823): Revisit this pass if jscompiler adds a way to express constraints
-            // to template variables.
-            new InsertCastsToTypeBounds(),
-
-            // TODO(b/72652198): remove the temporary fix once switch to JSCompiler's new type
-            // checker.
-            new InsertTypeAnnotationOnGenericReturnTypes(),
-
-            // Perform post cleanups.
-            new ImplementStaticInitialization(),
-            // Normalize multiexpressions again to remove unnecessary clutter, but run before
-            // variable motion.
-            new NormalizeMultiExpressions(),
-            new MoveVariableDeclarationsToEnclosingBlock(),
-            // Remove redundant JsDocCasts.
-            new RemoveUnneededJsDocCasts(),
-            new NormalizeJsDocCastExpressions(),
-
-            // Handle await keyword.
-            new NormalizeJsAwaitMethodInvocations(),
-            new RemoveNoopStatements(),
-
-            // Enrich source mapping information for better stack deobfuscation.
-            new FilloutMissingSourceMapInformation());
+  /**
+   * Normalizes and generates the output of the units one at a time, dropping each unit as soon as
+   * its output is written so that the ASTs of the whole library are never held at once.
+   *
+   * <p>Only the whole program checks see all the units. Units are normalized sequentially in this
+   * mode.
+   */
+  private void transpileUnitsPipelined(List<CompilationUnit> j2clUnits) {
+    if (!j2clUnits.isEmpty()) {
+      checkUnits(j2clUnits);
+      implementLambdaExpressions(j2clUnits);
+    }
+
+    OutputGeneratorStage outputGeneratorStage = createOutputGeneratorStage();
+    List<NormalizationPass> passes = createPasses();
+    for (int i = 0; i < j2clUnits.size(); i++) {
+      CompilationUnit j2clUnit = j2clUnits.set(i, null);
+      normalizeUnit(j2clUnit, passes);
+      outputGeneratorStage.generateOutputs(j2clUnit);
+    }
+    outputGeneratorStage.finishOutputs();
+  }
 
+  /**
+   * Transpiles the units one at a time like {@link #transpileUnitsPipelined}, but replays the
+   * outputs that were recorded for a unit in a previous compilation if its inputs did not change.
+   */
+  private void transpileUnitsIncrementally(
+      List<CompilationUnit> j2clUnits, TranspilationCache transpilationCache) {
+    if (!j2clUnits.isEmpty()) {
+      checkUnits(j2clUnits);
+    }
+
+    // The library key covers the API of the units, hence it is computed before normalization.
+    String libraryKey =
+        profiler.profile(
+            "cache",
+            "LibraryKey",
+            () ->
+                computeCacheKey(
+                    () -> TranspilationCacheKeys.computeLibraryKey(options, j2clUnits)));
+
+    // Lambda adaptors are numbered across units, so the number of the first adaptor of each unit
+    // is part of its key.
+    ImplementLambdaExpressions implementLambdaExpressions = new ImplementLambdaExpressions();
+    List<String> unitKeys = new ArrayList<>();
     for (CompilationUnit j2clUnit : j2clUnits) {
+      int firstLambdaAdaptorNumber = implementLambdaExpressions.getNextLambdaAdaptorNumber();
+      unitKeys.add(
+          computeCacheKey(
+              () ->
+                  TranspilationCacheKeys.computeUnitKey(
+                      libraryKey, j2clUnit, getSource(j2clUnit), firstLambdaAdaptorNumber)));
       verifyUnit(j2clUnit);
-      for (NormalizationPass pass : passes) {
-        pass.applyTo(j2clUnit);
+      applyPass(implementLambdaExpressions, j2clUnit);
+    }
+
+    OutputGeneratorStage outputGeneratorStage = createOutputGeneratorStage();
+    List<NormalizationPass> passes = createPasses();
+    for (int i = 0; i < j2clUnits.size(); i++) {
+      CompilationUnit j2clUnit = j2clUnits.set(i, null);
+      String unitKey = unitKeys.get(i);
+      CompilationUnitOutputs outputs = transpilationCache.get(unitKey);
+      if (outputs != null) {
+        profiler.count("transpilationCacheHits", 1);
+        profiler.profile("cache", "Replay", () -> outputGeneratorStage.replayOutputs(outputs));
+        continue;
+      }
+
+      profiler.count("transpilationCacheMisses", 1);
+      int messageCount = problems.getMessages().size();
+      normalizeUnit(j2clUnit, passes);
+      CompilationUnitOutputs generatedOutputs =
+          outputGeneratorStage.generateAndRecordOutputs(j2clUnit);
+      // Units that report problems are not cached so that their problems are reported every time.
+      if (problems.getMessages().size() == messageCount) {
+        transpilationCache.put(unitKey, generatedOutputs);
       }
-      verifyNormalizedUnit(j2clUnit);
     }
+    outputGeneratorStage.finishOutputs();
+  }
+
+  private interface CacheKeyComputation {
+    String compute() throws IOException;
+  }
+
+  private String computeCacheKey(CacheKeyComputation computation) {
+    try {
+      return computation.compute();
+    } catch (IOException e) {
+      problems.fatal(FatalError.CANNOT_OPEN_FILE, e.toString());
+      return null;
+    }
+  }
+
+  private void normalizeUnits(List<CompilationUnit> j2clUnits) {
+    implementLambdaExpressions(j2clUnits);
+
+    List<NormalizationPass> passes = createPasses();
+    for (CompilationUnit j2clUnit : j2clUnits) {
+      normalizeUnit(j2clUnit, passes);
+    }
+  }
+
+  private void implementLambdaExpressions(List<CompilationUnit> j2clUnits) {
+    // ImplementLambdaExpressions numbers the adaptors it synthesizes across all the compilation
+    // units, hence it needs to see the units one at a time and in order. It is the first pass and
+    // is applied to all the units before the rest of the passes, which only operate within the
+    // unit they are applied to.
+    ImplementLambdaExpressions implementLambdaExpressions = new ImplementLambdaExpressions();
+    for (CompilationUnit j2clUnit : j2clUnits) {
+      verifyUnit(j2clUnit);
+      applyPass(implementLambdaExpressions, j2clUnit);
+    }
+  }
+
+  private void normalizeUnit(CompilationUnit j2clUnit, List<NormalizationPass> passes) {
+    for (NormalizationPass pass : passes) {
+      applyPass(pass, j2clUnit);
+    }
+    verifyNormalizedUnit(j2clUnit);
+  }
+
+  private void applyPass(NormalizationPass pass, CompilationUnit j2clUnit) {
+    profiler.profile("pass", pass.getClass().getSimpleName(), () -> pass.applyTo(j2clUnit));
+  }
+
+  private List<NormalizationPass> createPasses() {
+    List<NormalizationPass> passes = createUnfusedPasses();
+    return options.getFusePasses() ? FusedNormalizationPass.fuseAdjacentPasses(passes) : passes;
   }
 
-  private static void verifyUnit(CompilationUnit j2clUnit) {
-    VerifySingleAstReference.applyTo(j2clUnit);
-    VerifyParamAndArgCounts.applyTo(j2clUnit);
-    VerifyVariableScoping.applyTo(j2clUnit);
+  private static List<NormalizationPass> createUnfusedPasses() {
+    // TODO(b/117155139): Review the ordering of passes.
+    return ImmutableList.of(
+        // Class structure normalizations.
+        // ImplementLambdaExpressions has already been applied by normalizeUnits.
+        new OptimizeAnonymousInnerClassesToFunctionExpressions(),
+        new NormalizeFunctionExpressions(),
+        // Default constructors and explicit super calls should be synthesized first.
+        new CreateDefaultConstructors(),
+        new InsertExplicitSuperCalls(),
+        new DefaultMethodsResolver(),
+        new PackagePrivateMethodsDispatcher(),
+        new BridgeMethodsCreator(),
+        new JsBridgeMethodsCreator(),
+        // TODO(b/31865368): Remove RewriteStringEquals pass once delayed field initialization
+        //  is introduced and String.java gets updated to use it.
+        new RewriteStringEquals(),
+        new DevirtualizeBoxedTypesAndJsFunctionImplementations(),
+        new NormalizeTryWithResources(),
+        new NormalizeCatchClauses(),
+        // Runs before normalizing nested classes.
+        new InsertCastOnNewInstances(),
+        // Must run before Enum normalization
+        new FixSuperCallQualifiers(),
+
+        // Runs after all passes that synthesize overlays.
+        new NormalizeEnumClasses(),
+        new NormalizeJsEnums(),
+        new NormalizeOverlayMembers(),
+        new NormalizeInterfaceMethods(),
+        // End of class structure normalization.
+
+        // Statement/Expression normalizations
+        new NormalizeArrayLiterals(),
+        new NormalizeStaticMemberQualifiers(),
+        // Runs after NormalizeStaticMemberQualifiersPass.
+        new DevirtualizeMethodCalls(),
+        new ControlStatementFormatter(),
+        new NormalizeMultiExpressions(),
+        // Runs after NormalizeMultiExpressions to make sure it only sees valid l-values.
+        new ExpandCompoundAssignments(),
+        new InsertErasureTypeSafetyCasts(),
+        // Runs before unboxing conversion.
+        new InsertStringConversions(),
+        new InsertNarrowingReferenceConversions(),
+        new InsertUnboxingConversions(),
+        new InsertBoxingConversions(),
+        new InsertNarrowingPrimitiveConversions(),
+        new InsertWideningPrimitiveConversions(),
+        new NormalizeLongs(),
+        new InsertDivisionCoercions(),
+        new InsertBitwiseOperatorBooleanCoercions(),
+        new InsertUnsignedRightShiftCoercions(),
+        new NormalizeJsFunctionPropertyInvocations(),
+        // Run before other passes that normalize JsEnum expressions, but after all the normal
+        // Java semantic conversions.
+        new InsertJsEnumBoxingAndUnboxingConversions(),
+        new NormalizeSwitchStatements(),
+        new ArrayAccessNormalizer(),
+        new ImplementAssertStatements(),
+        new ImplementSynchronizedStatements(),
+        new NormalizeFieldInitialization(),
+        new ImplementInstanceInitialization(),
+        new NormalizeNestedClassConstructors(),
+        new NormalizeConstructors(),
+        new NormalizeTypeLiterals(),
+        new NormalizeCasts(),
+        new NormalizeInstanceOfs(),
+        new NormalizeEquality(),
+        new NormalizeStaticNativeMemberReferences(),
+        new NormalizeJsVarargs(),
+        new NormalizeArrayCreations(),
+        new InsertExceptionConversions(),
+        new NormalizeLiterals(),
+
+        // Needs to run after passes that do code synthesis are run so that it handles the
+        // synthesize code as well.
+        // TODO(b/35241823): Revisit this pass if jscompiler adds a way to express constraints
+        // to template variables.
+        new InsertCastsToTypeBounds(),
+
+        // TODO(b/72652198): remove the temporary fix once switch to JSCompiler's new type
+        // checker.
+        new InsertTypeAnnotationOnGenericReturnTypes(),
+
+        // Perform post cleanups.
+        new ImplementStaticInitialization(),
+        // Normalize multiexpressions again to remove unnecessary clutter, but run before
+        // variable motion.
+        new NormalizeMultiExpressions(),
+        new MoveVariableDeclarationsToEnclosingBlock(),
+        // Remove redundant JsDocCasts.
+        new RemoveUnneededJsDocCasts(),
+        new NormalizeJsDocCastExpressions(),
+
+        // Handle await keyword.
+        new NormalizeJsAwaitMethodInvocations(),
+        new RemoveNoopStatements(),
+
+        // Enrich source mapping information for better stack deobfuscation.
+        new FilloutMissingSourceMapInformation());
   }
 
-  private static void verifyNormalizedUnit(CompilationUnit j2clUnit) {
+  private void verifyUnit(CompilationUnit j2clUnit) {
+    if (!shouldVerify(j2clUnit)) {
+      return;
+    }
+    profiler.profile(
+        "verifier", "VerifySingleAstReference", () -> VerifySingleAstReference.applyTo(j2clUnit));
+    profiler.profile(
+        "verifier", "VerifyParamAndArgCounts", () -> VerifyParamAndArgCounts.applyTo(j2clUnit));
+    profiler.profile(
+        "verifier", "VerifyVariableScoping", () -> VerifyVariableScoping.applyTo(j2clUnit));
+  }
+
+  private void verifyNormalizedUnit(CompilationUnit j2clUnit) {
+    if (!shouldVerify(j2clUnit)) {
+      return;
+    }
     verifyUnit(j2clUnit);
-    VerifyNormalizedUnits.applyTo(j2clUnit);
+    profiler.profile(
+        "verifier", "VerifyNormalizedUnits", () -> VerifyNormalizedUnits.applyTo(j2clUnit));
+  }
+
+  private boolean shouldVerify(CompilationUnit j2clUnit) {
+    switch (options.getVerificationLevel()) {
+      case OFF:
+        return false;
+      case SAMPLED:
+        // Sample by qualified name, which unlike the file path does not depend on where the
+        // sources were extracted, so that the same units are verified in every build.
+        String qualifiedName = j2clUnit.getPackageName() + "." + j2clUnit.getName();
+        return Math.floorMod(qualifiedName.hashCode(), VERIFICATION_SAMPLING_RATE) == 0;
+      case FULL:
+        return true;
+    }
+    throw new AssertionError("Unexpected verification level: " + options.getVerificationLevel());
   }
 
   private void generateOutputs(List<CompilationUnit> j2clCompilationUnits) {
-    new OutputGeneratorStage(
-            options.getNativeSources(),
-            options.getOutput(),
-            options.getLibraryInfoOutput(),
-            options.getEmitReadableLibraryInfo(),
-            options.getEmitReadableSourceMap(),
-            options.getGenerateKytheIndexingMetadata(),
-            problems)
-        .generateOutputs(j2clCompilationUnits);
+    createOutputGeneratorStage().generateOutputs(j2clCompilationUnits);
   }
 
-  private void maybeCloseFileSystem() {
-    FileSystem outputFileSystem = options.getOutput().getFileSystem();
-    if (outputFileSystem.getClass().getCanonicalName().equals("com.sun.nio.zipfs.ZipFileSystem")
-        || outputFileSystem.getClass().getCanonicalName().equals("jdk.nio.zipfs.ZipFileSystem")) {
-      try {
-        outputFileSystem.close();
-      } catch (IOException e) {
-        problems.fatal(FatalError.CANNOT_CLOSE_ZIP, e.getMessage());
-      }
+  private FileInfo getSource(CompilationUnit j2clUnit) {
+    return sourcesByFilePath.getOrDefault(
+        j2clUnit.getFilePath(), FileInfo.create(j2clUnit.getFilePath(), j2clUnit.getFilePath()));
+  }
+
+  private OutputGeneratorStage createOutputGeneratorStage() {
+    return new OutputGeneratorStage(
+        options.getNativeSources(),
+        sourcesByFilePath,
+        options.getOutput(),
+        options.getLibraryInfoOutput(),
+        options.getEmitReadableLibraryInfo(),
+        options.getEmitReadableSourceMap(),
+        options.getGenerateKytheIndexingMetadata(),
+        profiler,
+        problems);
+  }
+
+  private void closeOutput() {
+    profiler.profile("output", "CloseOutput", () -> options.getOutput().close());
+  }
+
+  private void recordInternerCounts() {
+    if (!profiler.isEnabled()) {
+      return;
+    }
+    for (ConcurrentInterner<?> interner : ConcurrentInterner.getInterners()) {
+      profiler.count("internerHits", interner.getHitCount());
+      profiler.count("internerMisses", interner.getMissCount());
+    }
+  }
+
+  private void maybeWriteProfile() {
+    if (options.getProfileOutput().isPresent()) {
+      profiler.writeTo(options.getProfileOutput().get(), problems);
     }
   }
 }
@@ -19,10 +19,15 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.j2cl.common.ClasspathEnvironmentCache;
 import com.google.j2cl.common.FrontendUtils.FileInfo;
+import com.google.j2cl.common.Output;
+import com.google.j2cl.common.Profiler;
 import com.google.j2cl.frontend.Frontend;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /** Frontend options, which is initialized by a Flag instance that is already parsed. */
@@ -35,7 +40,7 @@ public abstract class J2clTranspilerOptions {
 
   public abstract ImmutableList<String> getClasspaths();
 
-  public abstract Path getOutput();
+  public abstract Output getOutput();
 
   public abstract Optional<Path> getLibraryInfoOutput();
 
@@ -47,12 +52,43 @@ public abstract class J2clTranspilerOptions {
 
   public abstract boolean getExperimentalOptimizeAutovalue();
 
+  public abstract boolean getFusePasses();
+
+  public abstract boolean getPipelinedTranspilation();
+
+  /**
+   * Whether sources are checked for leftover {@code GwtIncompatible} members, which can be skipped
+   * for sources that already went through the stripper.
+   */
+  public abstract boolean getCheckGwtIncompatible();
+
+  public abstract Optional<Path> getProfileOutput();
+
+  /** The profiler that records the compilation, created on demand if there is a profile output. */
+  public abstract Optional<Profiler> getProfiler();
+
+  public abstract Optional<TranspilationCache> getTranspilationCache();
+
+  public abstract ClasspathEnvironmentCache getClasspathEnvironmentCache();
+
+  /** The content digests of the inputs that are already known, keyed by their absolute paths. */
+  public abstract ImmutableMap<Path, String> getInputDigests();
+
+  public abstract VerificationLevel getVerificationLevel();
+
   public abstract Frontend getFrontend();
 
   public abstract Builder toBuilder();
 
   public static Builder newBuilder() {
-    return new AutoValue_J2clTranspilerOptions.Builder().setExperimentalOptimizeAutovalue(false);
+    return new AutoValue_J2clTranspilerOptions.Builder()
+        .setExperimentalOptimizeAutovalue(false)
+        .setFusePasses(false)
+        .setPipelinedTranspilation(false)
+        .setCheckGwtIncompatible(true)
+        .setClasspathEnvironmentCache(ClasspathEnvironmentCache.disabled())
+        .setInputDigests(ImmutableMap.of())
+        .setVerificationLevel(VerificationLevel.FULL);
   }
 
   /** A Builder for J2clTranspilerOptions. */
@@ -65,7 +101,7 @@ public abstract class J2clTranspilerOptions {
 
     public abstract Builder setClasspaths(List<String> entries);
 
-    public abstract Builder setOutput(Path path);
+    public abstract Builder setOutput(Output output);
 
     public abstract Builder setLibraryInfoOutput(Path path);
 
@@ -77,6 +113,25 @@ public abstract class J2clTranspilerOptions {
 
     public abstract Builder setExperimentalOptimizeAutovalue(boolean b);
 
+    public abstract Builder setFusePasses(boolean b);
+
+    public abstract Builder setPipelinedTranspilation(boolean b);
+
+    public abstract Builder setCheckGwtIncompatible(boolean b);
+
+    public abstract Builder setProfileOutput(Path path);
+
+    public abstract Builder setProfiler(Profiler profiler);
+
+    public abstract Builder setTranspilationCache(TranspilationCache transpilationCache);
+
+    public abstract Builder setClasspathEnvironmentCache(
+        ClasspathEnvironmentCache classpathEnvironmentCache);
+
+    public abstract Builder setInputDigests(Map<Path, String> inputDigests);
+
+    public abstract Builder setVerificationLevel(VerificationLevel verificationLevel);
+
     public abstract Builder setFrontend(Frontend frontend);
 
     abstract J2clTranspilerOptions autoBuild();
@@ -90,4 +145,14 @@ public abstract class J2clTranspilerOptions {
       return options;
     }
   }
+
+  /** How thoroughly the AST is checked for consistency before and after normalization. */
+  public enum VerificationLevel {
+    /** No compilation unit is verified. */
+    OFF,
+    /** A deterministic subset of the compilation units is verified. */
+    SAMPLED,
+    /** All compilation units are verified. */
+    FULL
+  }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.transpiler;
+
+import com.google.j2cl.generator.CompilationUnitOutputs;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded in-memory cache of the outputs of compilation units that is shared by the compilations
+ * run in the same process, e.g. by a persistent worker.
+ *
+ * <p>Entries are keyed by a digest of all the inputs that determine the output of a unit, so they
+ * never become stale; when the cache grows beyond its size the least recently used entries are
+ * evicted.
+ */
+public final class TranspilationCache {
+  private final long maxSizeInBytes;
+  private final Map<String, CompilationUnitOutputs> outputsByKey =
+      new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+  private long sizeInBytes;
+  private long hitCount;
+  private long missCount;
+
+  public TranspilationCache(long maxSizeInBytes) {
+    this.maxSizeInBytes = maxSizeInBytes;
+  }
+
+  /** Returns the outputs recorded for {@code key} or {@code null} if there are none. */
+  @Nullable
+  public synchronized CompilationUnitOutputs get(String key) {
+    CompilationUnitOutputs outputs = outputsByKey.get(key);
+    if (outputs == null) {
+      missCount++;
+    } else {
+      hitCount++;
+    }
+    return outputs;
+  }
+
+  public synchronized void put(String key, CompilationUnitOutputs outputs) {
+    long outputsSizeInBytes = outputs.getSizeInBytes();
+    if (outputsSizeInBytes > maxSizeInBytes) {
+      return;
+    }
+
+    CompilationUnitOutputs previousOutputs = outputsByKey.put(key, outputs);
+    if (previousOutputs != null) {
+      sizeInBytes -= previousOutputs.getSizeInBytes();
+    }
+    sizeInBytes += outputsSizeInBytes;
+
+    Iterator<CompilationUnitOutputs> iterator = outputsByKey.values().iterator();
+    while (sizeInBytes > maxSizeInBytes) {
+      sizeInBytes -= iterator.next().getSizeInBytes();
+      iterator.remove();
+    }
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized long getSizeInBytes() {
+    return sizeInBytes;
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.transpiler;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.j2cl.ast.CompilationUnit;
+import com.google.j2cl.ast.DeclaredTypeDescriptor;
+import com.google.j2cl.ast.Field;
+import com.google.j2cl.ast.Member;
+import com.google.j2cl.ast.MemberDescriptor;
+import com.google.j2cl.ast.MethodDescriptor;
+import com.google.j2cl.ast.Type;
+import com.google.j2cl.ast.TypeDeclaration;
+import com.google.j2cl.common.FileDigests;
+import com.google.j2cl.common.FrontendUtils.FileInfo;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Computes the keys under which the outputs of compilation units are stored in the {@link
+ * TranspilationCache}.
+ *
+ * <p>The output of a unit is determined by its own source, by the declarations it can see (the
+ * classpath and the API of the other units in the library), by the native sources, by the options
+ * that affect code generation and by the number given to the first lambda adaptor synthesized for
+ * it. Method bodies of the other units in the library do not contribute to the key, which is what
+ * makes the cache effective when only a few sources change.
+ */
+final class TranspilationCacheKeys {
+
+  /** Returns a key that covers all the inputs that are shared by the units of the library. */
+  static String computeLibraryKey(J2clTranspilerOptions options, List<CompilationUnit> j2clUnits)
+      throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    putString(hasher, options.getFrontend().name());
+    hasher.putBoolean(options.getEmitReadableSourceMap());
+    hasher.putBoolean(options.getEmitReadableLibraryInfo());
+    hasher.putBoolean(options.getLibraryInfoOutput().isPresent());
+    hasher.putBoolean(options.getGenerateKytheIndexingMetadata());
+    hasher.putBoolean(options.getExperimentalOptimizeAutovalue());
+
+    for (String classpathEntry : options.getClasspaths()) {
+      putString(hasher, classpathEntry);
+      putString(hasher, FileDigests.getDigest(Paths.get(classpathEntry)));
+    }
+
+    for (FileInfo nativeSource : options.getNativeSources()) {
+      putString(hasher, nativeSource.targetPath());
+      putString(hasher, FileDigests.getDigest(nativeSource));
+    }
+
+    for (CompilationUnit j2clUnit : j2clUnits) {
+      putString(hasher, j2clUnit.getPackageName());
+      putString(hasher, j2clUnit.getName());
+      for (Type type : j2clUnit.getTypes()) {
+        putTypeApi(hasher, type);
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  /** Returns the key for the outputs of {@code j2clUnit}, which was created from {@code source}. */
+  static String computeUnitKey(
+      String libraryKey, CompilationUnit j2clUnit, FileInfo source, int firstLambdaAdaptorNumber)
+      throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    putString(hasher, libraryKey);
+    putString(hasher, j2clUnit.getPackageName());
+    putString(hasher, j2clUnit.getName());
+    // The directory of the source is used to find its native sources.
+    putString(hasher, j2clUnit.getDirectoryPath());
+    putString(hasher, FileDigests.getDigest(source));
+    hasher.putInt(firstLambdaAdaptorNumber);
+    return hasher.hash().toString();
+  }
+
+  private static void putTypeApi(Hasher hasher, Type type) {
+    TypeDeclaration typeDeclaration = type.getDeclaration();
+    putString(hasher, type.getTypeDescriptor().getUniqueId());
+    putString(hasher, String.valueOf(type.getSuperTypeDescriptor()));
+    for (DeclaredTypeDescriptor superInterface : type.getSuperInterfaceTypeDescriptors()) {
+      putString(hasher, superInterface.getUniqueId());
+    }
+    putString(hasher, String.valueOf(typeDeclaration.getVisibility()));
+    putString(hasher, String.valueOf(typeDeclaration.getKind()));
+    hasher.putBoolean(typeDeclaration.isAbstract());
+    hasher.putBoolean(typeDeclaration.isFinal());
+    hasher.putBoolean(typeDeclaration.isFunctionalInterface());
+    hasher.putBoolean(typeDeclaration.isJsFunctionInterface());
+    hasher.putBoolean(typeDeclaration.isJsType());
+    hasher.putBoolean(typeDeclaration.isNative());
+    hasher.putBoolean(typeDeclaration.isCapturingEnclosingInstance());
+    putString(hasher, String.valueOf(typeDeclaration.getJsEnumInfo()));
+    putString(hasher, String.valueOf(typeDeclaration.getSimpleJsName()));
+    putString(hasher, String.valueOf(typeDeclaration.getJsNamespace()));
+
+    for (Member member : type.getMembers()) {
+      putMemberApi(hasher, member);
+    }
+  }
+
+  private static void putMemberApi(Hasher hasher, Member member) {
+    MemberDescriptor memberDescriptor = member.getDescriptor();
+    putString(hasher, memberDescriptor.getQualifiedBinaryName());
+    putString(hasher, String.valueOf(memberDescriptor.getVisibility()));
+    putString(hasher, String.valueOf(memberDescriptor.getJsInfo()));
+    putString(hasher, String.valueOf(memberDescriptor.getOrigin()));
+    hasher.putBoolean(memberDescriptor.isStatic());
+    hasher.putBoolean(memberDescriptor.isFinal());
+    hasher.putBoolean(memberDescriptor.isNative());
+    hasher.putBoolean(memberDescriptor.isSynthetic());
+
+    if (memberDescriptor instanceof MethodDescriptor) {
+      MethodDescriptor methodDescriptor = (MethodDescriptor) memberDescriptor;
+      putString(hasher, String.valueOf(methodDescriptor.getParameterDescriptors()));
+      putString(hasher, String.valueOf(methodDescriptor.getTypeParameterTypeDescriptors()));
+      putString(hasher, methodDescriptor.getReturnTypeDescriptor().getUniqueId());
+      hasher.putBoolean(methodDescriptor.isAbstract());
+      hasher.putBoolean(methodDescriptor.isDefaultMethod());
+    }
+
+    if (member instanceof Field) {
+      Field field = (Field) member;
+      putString(hasher, field.getDescriptor().getTypeDescriptor().getUniqueId());
+      // The values of compile time constants are inlined at their references.
+      if (field.isCompileTimeConstant()) {
+        putString(hasher, field.getInitializer().toString());
+      }
+    }
+  }
+
+  private static void putString(Hasher hasher, String string) {
+    // Strings are length prefixed so that the boundaries between them are part of the digest.
+    hasher.putInt(string.length()).putString(string, StandardCharsets.UTF_8);
+  }
+
+  private TranspilationCacheKeys() {}
+}
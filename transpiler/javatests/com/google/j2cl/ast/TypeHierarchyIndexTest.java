@@ -0,0 +1,281 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.ast;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.j2cl.common.CompilationContext;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class TypeHierarchyIndexTest {
+
+  @Test
+  public void testIsSubtypeOf_followsDiamondInterfaces() {
+    inNewCompilation(
+        () -> {
+          TypeDeclaration top = createInterface("Top", ImmutableList.of());
+          TypeDeclaration left = createInterface("Left", ImmutableList.of(top));
+          TypeDeclaration right = createInterface("Right", ImmutableList.of(top));
+          TypeDeclaration bottom = createClass("Bottom", null, ImmutableList.of(left, right));
+          TypeDeclaration unrelated = createClass("Unrelated", null, ImmutableList.of());
+
+          TypeHierarchyIndex index = TypeHierarchyIndex.get();
+          assertThat(index.isSubtypeOf(bottom, bottom)).isTrue();
+          assertThat(index.isSubtypeOf(bottom, left)).isTrue();
+          assertThat(index.isSubtypeOf(bottom, right)).isTrue();
+          assertThat(index.isSubtypeOf(bottom, top)).isTrue();
+          assertThat(index.isSubtypeOf(left, right)).isFalse();
+          assertThat(index.isSubtypeOf(top, bottom)).isFalse();
+          assertThat(index.isSubtypeOf(bottom, unrelated)).isFalse();
+        });
+  }
+
+  @Test
+  public void testIsSubtypeOf_everyTypeIsSubtypeOfObject() {
+    inNewCompilation(
+        () -> {
+          TypeDeclaration object = TypeDescriptors.get().javaLangObject.getTypeDeclaration();
+          TypeDeclaration anInterface = createInterface("AnInterface", ImmutableList.of());
+          TypeDeclaration aClass = createClass("AClass", null, ImmutableList.of());
+
+          TypeHierarchyIndex index = TypeHierarchyIndex.get();
+          // Neither declares java.lang.Object as a supertype.
+          assertThat(index.isSubtypeOf(anInterface, object)).isTrue();
+          assertThat(index.isSubtypeOf(aClass, object)).isTrue();
+          assertThat(index.isSubtypeOf(object, object)).isTrue();
+          assertThat(index.isSubtypeOf(object, aClass)).isFalse();
+        });
+  }
+
+  @Test
+  public void testGetId_isDenseAndStable() {
+    inNewCompilation(
+        () -> {
+          TypeDeclaration first = createClass("First", null, ImmutableList.of());
+          TypeDeclaration second = createClass("Second", null, ImmutableList.of());
+
+          TypeHierarchyIndex index = TypeHierarchyIndex.get();
+          assertThat(index.getId(first)).isEqualTo(0);
+          assertThat(index.getId(second)).isEqualTo(1);
+          assertThat(index.getId(first)).isEqualTo(0);
+        });
+  }
+
+  @Test
+  public void testGetOverriddenMethodDescriptors_findsRedeclaredSignatures() {
+    inNewCompilation(
+        () -> {
+          TypeDeclaration anInterface = createInterface("AnInterface", ImmutableList.of(), "m");
+          TypeDeclaration base = createClass("Base", null, ImmutableList.of(anInterface), "m");
+          TypeDeclaration derived = createClass("Derived", base, ImmutableList.of(), "m", "n");
+
+          TypeHierarchyIndex index = TypeHierarchyIndex.get();
+          assertThat(index.getOverriddenMethodDescriptors(derived, getMethod(derived, "m")))
+              .containsExactly(getMethod(base, "m"), getMethod(anInterface, "m"))
+              .inOrder();
+          assertThat(index.getOverriddenMethodDescriptors(derived, getMethod(derived, "n")))
+              .isEmpty();
+          assertThat(index.getOverriddenMethodDescriptors(base, getMethod(base, "m")))
+              .containsExactly(getMethod(anInterface, "m"));
+          // The type need not declare the method it is asked about.
+          assertThat(index.getOverriddenMethodDescriptors(derived, getMethod(anInterface, "m")))
+              .containsExactly(getMethod(derived, "m"), getMethod(base, "m"))
+              .inOrder();
+        });
+  }
+
+  @Test
+  public void testGetOverriddenMethodDescriptors_listsDiamondMethodsOnce() {
+    inNewCompilation(
+        () -> {
+          TypeDeclaration top = createInterface("Top", ImmutableList.of(), "m");
+          TypeDeclaration left = createInterface("Left", ImmutableList.of(top));
+          TypeDeclaration right = createInterface("Right", ImmutableList.of(top));
+          TypeDeclaration bottom = createClass("Bottom", null, ImmutableList.of(left, right), "m");
+
+          assertThat(
+                  TypeHierarchyIndex.get()
+                      .getOverriddenMethodDescriptors(bottom, getMethod(bottom, "m")))
+              .containsExactly(getMethod(top, "m"));
+        });
+  }
+
+  @Test
+  public void testGetOverriddenMethodDescriptors_includesObjectMethods() {
+    inNewCompilation(
+        () -> {
+          TypeDeclaration object = TypeDescriptors.get().javaLangObject.getTypeDeclaration();
+          TypeDeclaration aClass = createClass("AClass", object, ImmutableList.of(), "toString");
+
+          assertThat(
+                  TypeHierarchyIndex.get()
+                      .getOverriddenMethodDescriptors(aClass, getMethod(aClass, "toString")))
+              .containsExactly(getMethod(object, "toString"));
+        });
+  }
+
+  @Test
+  public void testGetOverriddenMethodDescriptors_ordersMethodsAsTheMultimapDid() {
+    inNewCompilation(
+        () -> {
+          TypeDeclaration object = TypeDescriptors.get().javaLangObject.getTypeDeclaration();
+          TypeDeclaration top = createInterface("Top", ImmutableList.of(), "m", "n");
+          TypeDeclaration left = createInterface("Left", ImmutableList.of(top), "m");
+          TypeDeclaration right = createInterface("Right", ImmutableList.of(top), "n");
+          TypeDeclaration other = createInterface("Other", ImmutableList.of(), "m", "toString");
+          TypeDeclaration base = createClass("Base", object, ImmutableList.of(right), "n");
+          TypeDeclaration middle = createClass("Middle", base, ImmutableList.of(left), "m");
+          TypeDeclaration bottom =
+              createClass("Bottom", middle, ImmutableList.of(other, top), "m", "n", "toString");
+
+          TypeHierarchyIndex index = TypeHierarchyIndex.get();
+          for (TypeDeclaration type : ImmutableList.of(bottom, middle, base, left, other)) {
+            for (MethodDescriptor methodDescriptor : bottom.getDeclaredMethodDescriptors()) {
+              assertThat(index.getOverriddenMethodDescriptors(type, methodDescriptor))
+                  .containsExactlyElementsIn(
+                      getOverriddenMethodDescriptorsFromMultimap(type, methodDescriptor))
+                  .inOrder();
+            }
+          }
+          assertThat(index.getOverriddenMethodDescriptors(bottom, getMethod(bottom, "m")))
+              .containsExactly(
+                  getMethod(middle, "m"),
+                  getMethod(top, "m"),
+                  getMethod(left, "m"),
+                  getMethod(other, "m"))
+              .inOrder();
+        });
+  }
+
+  /**
+   * Returns the overridden methods as they were computed before the index, by merging the methods
+   * of the whole hierarchy of the type into a multimap.
+   */
+  private static Set<MethodDescriptor> getOverriddenMethodDescriptorsFromMultimap(
+      TypeDeclaration typeDeclaration, MethodDescriptor methodDescriptor) {
+    Set<MethodDescriptor> overriddenMethodDescriptors =
+        new LinkedHashSet<>(
+            getMethodDescriptorsByOverrideSignature(typeDeclaration)
+                .get(methodDescriptor.getOverrideSignature()));
+    overriddenMethodDescriptors.remove(methodDescriptor);
+    return overriddenMethodDescriptors;
+  }
+
+  private static Multimap<String, MethodDescriptor> getMethodDescriptorsByOverrideSignature(
+      TypeDeclaration typeDeclaration) {
+    Multimap<String, MethodDescriptor> methodDescriptorsByOverrideSignature =
+        LinkedHashMultimap.create();
+    for (MethodDescriptor declaredMethodDescriptor :
+        typeDeclaration.getDeclaredMethodDescriptors()) {
+      if (declaredMethodDescriptor.isPolymorphic()) {
+        methodDescriptorsByOverrideSignature.put(
+            declaredMethodDescriptor.getOverrideSignature(), declaredMethodDescriptor);
+      }
+    }
+    if (typeDeclaration.getSuperTypeDescriptor() != null) {
+      methodDescriptorsByOverrideSignature.putAll(
+          getMethodDescriptorsByOverrideSignature(
+              typeDeclaration.getSuperTypeDescriptor().getTypeDeclaration()));
+    }
+    for (DeclaredTypeDescriptor interfaceTypeDescriptor :
+        typeDeclaration.getInterfaceTypeDescriptors()) {
+      methodDescriptorsByOverrideSignature.putAll(
+          getMethodDescriptorsByOverrideSignature(interfaceTypeDescriptor.getTypeDeclaration()));
+    }
+    return methodDescriptorsByOverrideSignature;
+  }
+
+  /** Runs {@code runnable} in a fresh compilation that knows about java.lang.Object. */
+  private static void inNewCompilation(Runnable runnable) {
+    new CompilationContext()
+        .run(
+            () -> {
+              TypeDeclaration object =
+                  createType(
+                      Kind.CLASS, "java.lang", "Object", null, ImmutableList.of(), "toString");
+              new TypeDescriptors.SingletonBuilder()
+                  .addReferenceType(object.toUnparameterizedTypeDescriptor())
+                  .buildSingleton();
+              runnable.run();
+            });
+  }
+
+  private static TypeDeclaration createClass(
+      String name,
+      @Nullable TypeDeclaration superclass,
+      ImmutableList<TypeDeclaration> interfaces,
+      String... methodNames) {
+    return createType(Kind.CLASS, "test", name, superclass, interfaces, methodNames);
+  }
+
+  private static TypeDeclaration createInterface(
+      String name, ImmutableList<TypeDeclaration> superinterfaces, String... methodNames) {
+    return createType(Kind.INTERFACE, "test", name, null, superinterfaces, methodNames);
+  }
+
+  /** Creates a type that declares a public instance method without parameters for each name. */
+  private static TypeDeclaration createType(
+      Kind kind,
+      String packageName,
+      String name,
+      @Nullable TypeDeclaration superclass,
+      ImmutableList<TypeDeclaration> interfaces,
+      String... methodNames) {
+    return TypeDeclaration.newBuilder()
+        .setKind(kind)
+        .setPackageName(packageName)
+        .setClassComponents(ImmutableList.of(name))
+        .setSuperTypeDescriptorFactory(
+            () -> superclass == null ? null : superclass.toUnparameterizedTypeDescriptor())
+        .setInterfaceTypeDescriptorsFactory(
+            () ->
+                interfaces.stream()
+                    .map(TypeDeclaration::toUnparameterizedTypeDescriptor)
+                    .collect(toImmutableList()))
+        .setDeclaredMethodDescriptorsFactory(
+            self ->
+                Arrays.stream(methodNames)
+                    .map(
+                        methodName ->
+                            MethodDescriptor.newBuilder()
+                                .setName(methodName)
+                                .setEnclosingTypeDescriptor(self.toUnparameterizedTypeDescriptor())
+                                .build())
+                    .collect(
+                        toImmutableMap(MethodDescriptor::getMethodSignature, Function.identity())))
+        .build();
+  }
+
+  private static MethodDescriptor getMethod(TypeDeclaration typeDeclaration, String name) {
+    return typeDeclaration.getDeclaredMethodDescriptors().stream()
+        .filter(m -> m.getName().equals(name))
+        .findFirst()
+        .get();
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.ast.processors.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ListVisitorTest {
+
+  private final List<String> visitedNodes = new ArrayList<>();
+  private List<String> pendingSplicedNodes;
+
+  @Test
+  public void testUnchangedList_isNotWritten() {
+    // The list rejects any modification.
+    List<String> nodes = Collections.unmodifiableList(listOf("a", "b", "c"));
+
+    ListVisitor.visit(nodes, n -> n);
+    visit(nodes, n -> n);
+
+    assertThat(nodes).containsExactly("a", "b", "c").inOrder();
+    assertThat(visitedNodes).containsExactly("a", "b", "c").inOrder();
+  }
+
+  @Test
+  public void testRemovals() {
+    List<String> nodes = listOf("a", "b", "c", "d", "e");
+
+    visit(nodes, n -> n.equals("b") || n.equals("d") ? null : n);
+
+    assertThat(nodes).containsExactly("a", "c", "e").inOrder();
+  }
+
+  @Test
+  public void testRemovals_allNodes() {
+    List<String> nodes = listOf("a", "b", "c");
+
+    visit(nodes, n -> null);
+
+    assertThat(nodes).isEmpty();
+  }
+
+  @Test
+  public void testReplacements() {
+    List<String> nodes = listOf("a", "b", "c");
+
+    visit(nodes, n -> n.equals("b") ? "B" : n);
+
+    assertThat(nodes).containsExactly("a", "B", "c").inOrder();
+  }
+
+  @Test
+  public void testReplacements_afterRemoval() {
+    List<String> nodes = listOf("a", "b", "c", "d");
+
+    visit(nodes, n -> n.equals("a") ? null : n.equals("c") ? "C" : n);
+
+    assertThat(nodes).containsExactly("b", "C", "d").inOrder();
+  }
+
+  @Test
+  public void testShrinkingSplices() {
+    List<String> nodes = listOf("a", "b", "c", "d");
+
+    visit(nodes, n -> n.equals("b") ? splice() : n.equals("c") ? splice("x") : n);
+
+    assertThat(nodes).containsExactly("a", "x", "d").inOrder();
+  }
+
+  @Test
+  public void testSplice_fitsInRemovedNodes() {
+    List<String> nodes = listOf("a", "b", "c", "d");
+
+    visit(nodes, n -> n.equals("a") ? null : n.equals("c") ? splice("x", "y") : n);
+
+    assertThat(nodes).containsExactly("b", "x", "y", "d").inOrder();
+  }
+
+  @Test
+  public void testGrowingSplices() {
+    List<String> nodes = listOf("a", "b", "c", "d", "e");
+
+    visit(
+        nodes,
+        n ->
+            n.equals("b")
+                ? splice("x", "y", "z")
+                : n.equals("c") ? splice("w") : n.equals("d") ? null : n.toUpperCase());
+
+    assertThat(nodes).containsExactly("A", "x", "y", "z", "w", "E").inOrder();
+    // Spliced nodes are not visited.
+    assertThat(visitedNodes).containsExactly("a", "b", "c", "d", "e").inOrder();
+  }
+
+  @Test
+  public void testHeadSplice() {
+    List<String> nodes = listOf("a", "b");
+
+    visit(nodes, n -> n.equals("a") ? splice("x", "y") : n);
+
+    assertThat(nodes).containsExactly("x", "y", "b").inOrder();
+  }
+
+  @Test
+  public void testTailSplice() {
+    List<String> nodes = listOf("a", "b");
+
+    visit(nodes, n -> n.equals("b") ? splice("x", "y") : n);
+
+    assertThat(nodes).containsExactly("a", "x", "y").inOrder();
+  }
+
+  @Test
+  public void testSplice_onlyNode() {
+    List<String> nodes = listOf("a");
+
+    visit(nodes, n -> splice("x", "y"));
+
+    assertThat(nodes).containsExactly("x", "y").inOrder();
+  }
+
+  private void visit(List<String> nodes, Function<String, String> rewrite) {
+    ListVisitor.visit(
+        nodes,
+        n -> {
+          visitedNodes.add(n);
+          return rewrite.apply(n);
+        },
+        this::takeSplicedNodes);
+    assertThat(pendingSplicedNodes).isNull();
+  }
+
+  private String splice(String... nodes) {
+    pendingSplicedNodes = Arrays.asList(nodes);
+    return null;
+  }
+
+  private List<String> takeSplicedNodes() {
+    List<String> splicedNodes = pendingSplicedNodes;
+    pendingSplicedNodes = null;
+    return splicedNodes;
+  }
+
+  private static List<String> listOf(String... nodes) {
+    return new ArrayList<>(Arrays.asList(nodes));
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.benchmarks;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.j2cl.ast.CompilationUnit;
+import com.google.j2cl.common.CompilationContext;
+import com.google.j2cl.common.FrontendUtils;
+import com.google.j2cl.common.FrontendUtils.FileInfo;
+import com.google.j2cl.common.Problems;
+import com.google.j2cl.frontend.common.PackageInfoCache;
+import com.google.j2cl.frontend.jdt.CompilationUnitBuilder;
+import com.google.j2cl.frontend.jdt.CompilationUnitsAndTypeBindings;
+import com.google.j2cl.frontend.jdt.JdtParser;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the peak live heap of converting the JDT ASTs of a corpus into J2CL ASTs.
+ *
+ * <p>The conversion is run releasing each JDT unit as soon as it is converted, which is what the
+ * frontend does, and retaining all the JDT units until the end of the conversion, which is what the
+ * frontend used to do. The live heap is sampled by a background thread that forces a full
+ * collection before each sample; the samples are only as precise as the sampling interval.
+ *
+ * <p>Usage: {@code FrontendMemoryBenchmark <classpath> <source or srcjar>...}
+ */
+public final class FrontendMemoryBenchmark {
+
+  private static final int ITERATIONS = 3;
+  private static final long SAMPLING_INTERVAL_MILLIS = 20;
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.err.println("Usage: FrontendMemoryBenchmark <classpath> <source or srcjar>...");
+      System.exit(1);
+    }
+    List<String> classPath =
+        Splitter.on(File.pathSeparatorChar).omitEmptyStrings().splitToList(args[0]);
+    Problems problems = new Problems();
+    ImmutableList<FileInfo> sources =
+        FrontendUtils.getAllSources(Arrays.asList(args).subList(1, args.length), problems)
+            .filter(f -> f.sourcePath().endsWith(".java"))
+            .collect(toImmutableList());
+    problems.abortIfHasErrors();
+    System.out.printf("Converting %d sources%n", sources.size());
+
+    for (int i = 0; i < ITERATIONS; i++) {
+      for (boolean retainJdtUnits : new boolean[] {true, false}) {
+        // Each conversion runs in a fresh context so that it does not see the state of the
+        // previous ones.
+        Measurement measurement =
+            new CompilationContext().call(() -> measure(classPath, sources, retainJdtUnits));
+        System.out.printf(
+            "%-9s peak live heap: %,d KB (%d units, %d JDT units retained)%n",
+            retainJdtUnits ? "retained" : "released",
+            measurement.peakLiveBytes / 1024,
+            measurement.unitCount,
+            measurement.retainedJdtUnitCount);
+      }
+    }
+  }
+
+  private static Measurement measure(
+      List<String> classPath, List<FileInfo> sources, boolean retainJdtUnits) {
+    Problems problems = new Problems();
+    CompilationUnitsAndTypeBindings jdtUnits =
+        new JdtParser(classPath, problems).parseFiles(sources, false);
+    problems.abortIfHasErrors();
+    List<org.eclipse.jdt.core.dom.CompilationUnit> retainedJdtUnits =
+        retainJdtUnits
+            ? new ArrayList<>(jdtUnits.getCompilationUnitsByFilePath().values())
+            : ImmutableList.of();
+
+    HeapSampler sampler = new HeapSampler();
+    sampler.start();
+    PackageInfoCache.init(classPath, problems);
+    List<CompilationUnit> units = CompilationUnitBuilder.build(jdtUnits);
+    long peakLiveBytes = sampler.stopAndGetPeak();
+
+    // The results are used once the sampling is over, which keeps them reachable until then.
+    return new Measurement(peakLiveBytes, units.size(), retainedJdtUnits.size());
+  }
+
+  private static class Measurement {
+    private final long peakLiveBytes;
+    private final int unitCount;
+    private final int retainedJdtUnitCount;
+
+    Measurement(long peakLiveBytes, int unitCount, int retainedJdtUnitCount) {
+      this.peakLiveBytes = peakLiveBytes;
+      this.unitCount = unitCount;
+      this.retainedJdtUnitCount = retainedJdtUnitCount;
+    }
+  }
+
+  /** Samples the used heap right after forcing a full collection. */
+  private static class HeapSampler extends Thread {
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    private volatile boolean stopped;
+    private long peakLiveBytes;
+
+    HeapSampler() {
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while (!stopped) {
+        sample();
+        try {
+          Thread.sleep(SAMPLING_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+
+    private synchronized void sample() {
+      System.gc();
+      peakLiveBytes = Math.max(peakLiveBytes, memoryMXBean.getHeapMemoryUsage().getUsed());
+    }
+
+    long stopAndGetPeak() {
+      // The last sample is taken with the results of the conversion still live.
+      sample();
+      stopped = true;
+      Uninterruptibles.joinUninterruptibly(this);
+      return peakLiveBytes;
+    }
+  }
+
+  private FrontendMemoryBenchmark() {}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.j2cl.ast.AbstractRewriter;
+import com.google.j2cl.ast.Block;
+import com.google.j2cl.ast.BreakStatement;
+import com.google.j2cl.ast.EmptyStatement;
+import com.google.j2cl.ast.ExpressionStatement;
+import com.google.j2cl.ast.Node;
+import com.google.j2cl.ast.NumberLiteral;
+import com.google.j2cl.ast.Statement;
+import com.google.j2cl.ast.SwitchCase;
+import com.google.j2cl.ast.SwitchStatement;
+import com.google.j2cl.ast.processors.common.ListVisitor;
+import com.google.j2cl.common.FilePosition;
+import com.google.j2cl.common.SourcePosition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rewriting the children lists of generated methods with thousands of statements.
+ *
+ * <p>The ASTs model a large static initializer, i.e. a block with one statement per field
+ * initialization interleaved with empty statements left behind by other passes, and a big switch
+ * table. Since the rewrites modify the ASTs, fresh ones are created before each invocation. The
+ * list benchmarks compare {@link ListVisitor} with the previous algorithm, which removed the nodes
+ * one by one.
+ *
+ * <p>Usage: {@code ListVisitorBenchmark [jmh options]}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ListVisitorBenchmark {
+
+  private static final SourcePosition SOURCE_POSITION = createSourcePosition();
+
+  @Param({"1000", "10000", "50000"})
+  public int statementCount;
+
+  private Block staticInitializer;
+  private SwitchStatement switchStatement;
+
+  @Setup(Level.Invocation)
+  public void setUp() {
+    List<Statement> statements = new ArrayList<>();
+    List<SwitchCase> cases = new ArrayList<>();
+    for (int i = 0; i < statementCount; i++) {
+      statements.add(NumberLiteral.fromInt(i).makeStatement(SOURCE_POSITION));
+      statements.add(new EmptyStatement(SOURCE_POSITION));
+      cases.add(
+          SwitchCase.newBuilder()
+              .setCaseExpression(NumberLiteral.fromInt(i))
+              .addStatement(
+                  i % 2 == 0
+                      ? new EmptyStatement(SOURCE_POSITION)
+                      : BreakStatement.newBuilder().setSourcePosition(SOURCE_POSITION).build())
+              .build());
+    }
+    staticInitializer =
+        Block.newBuilder().setStatements(statements).setSourcePosition(SOURCE_POSITION).build();
+    switchStatement =
+        SwitchStatement.newBuilder()
+            .setSwitchExpression(NumberLiteral.fromInt(0))
+            .setCases(cases)
+            .setSourcePosition(SOURCE_POSITION)
+            .build();
+  }
+
+  /** Removes the empty statements from the static initializer. */
+  @Benchmark
+  public Object removeStatements() {
+    return staticInitializer.accept(
+        new AbstractRewriter() {
+          @Override
+          public Statement rewriteEmptyStatement(EmptyStatement emptyStatement) {
+            return null;
+          }
+        });
+  }
+
+  /** Expands every statement of the static initializer into two statements. */
+  @Benchmark
+  public Object spliceStatements() {
+    return staticInitializer.accept(
+        new AbstractRewriter() {
+          @Override
+          public Statement rewriteExpressionStatement(ExpressionStatement expressionStatement) {
+            Statement emptyStatement = new EmptyStatement(expressionStatement.getSourcePosition());
+            return splice(ImmutableList.of(expressionStatement, emptyStatement));
+          }
+        });
+  }
+
+  /** Removes the switch cases that consist only of an empty statement. */
+  @Benchmark
+  public Object removeSwitchCases() {
+    return switchStatement.accept(
+        new AbstractRewriter() {
+          @Override
+          public Node rewriteSwitchCase(SwitchCase switchCase) {
+            return switchCase.getStatements().get(0) instanceof EmptyStatement ? null : switchCase;
+          }
+        });
+  }
+
+  @Benchmark
+  public List<Statement> removeFromList() {
+    List<Statement> statements = staticInitializer.getStatements();
+    ListVisitor.visit(statements, s -> s instanceof EmptyStatement ? null : s);
+    return statements;
+  }
+
+  @Benchmark
+  public List<Statement> removeFromListOneByOne() {
+    List<Statement> statements = staticInitializer.getStatements();
+    removeOneByOne(statements, s -> s instanceof EmptyStatement ? null : s);
+    return statements;
+  }
+
+  /** The algorithm used by {@link ListVisitor} before it compacted the lists. */
+  private static <T> void removeOneByOne(List<T> nodeList, Function<T, T> acceptor) {
+    for (int i = 0; i < nodeList.size(); i++) {
+      T oldNode = nodeList.get(i);
+      T newNode = acceptor.apply(oldNode);
+      if (newNode == null) {
+        nodeList.remove(i);
+        i--;
+        continue;
+      }
+      if (newNode != oldNode) {
+        nodeList.set(i, newNode);
+      }
+    }
+  }
+
+  private static SourcePosition createSourcePosition() {
+    FilePosition filePosition =
+        FilePosition.newBuilder().setLine(0).setColumn(0).setByteOffset(0).build();
+    return SourcePosition.newBuilder()
+        .setStartFilePosition(filePosition)
+        .setEndFilePosition(filePosition)
+        .build();
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.benchmarks;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.j2cl.ast.CompilationUnit;
+import com.google.j2cl.ast.ManglingNameUtils;
+import com.google.j2cl.ast.Method;
+import com.google.j2cl.ast.MethodDescriptor;
+import com.google.j2cl.ast.Type;
+import com.google.j2cl.common.FrontendUtils;
+import com.google.j2cl.common.FrontendUtils.FileInfo;
+import com.google.j2cl.common.Problems;
+import com.google.j2cl.common.SymbolTable;
+import com.google.j2cl.frontend.common.PackageInfoCache;
+import com.google.j2cl.frontend.jdt.CompilationUnitBuilder;
+import com.google.j2cl.frontend.jdt.CompilationUnitsAndTypeBindings;
+import com.google.j2cl.frontend.jdt.JdtParser;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the bytes allocated per method to compute the method signatures and mangled names of a
+ * corpus.
+ *
+ * <p>The strings are computed once per descriptor and interned in the symbol table of the
+ * compilation, so only the first request allocates; before they were built on every request, which
+ * allocated as much as the first request does now on each of them. Each round requests the strings
+ * of every method as many times as the generator and the passes typically do.
+ *
+ * <p>Usage: {@code MethodNameAllocationBenchmark <classpath> <source or srcjar>...}
+ */
+public final class MethodNameAllocationBenchmark {
+
+  private static final int ROUNDS = 5;
+  private static final int REQUESTS_PER_ROUND = 4;
+
+  public static void main(String[] args) {
+    if (args.length < 2) {
+      System.err.println("Usage: MethodNameAllocationBenchmark <classpath> <source or srcjar>...");
+      System.exit(1);
+    }
+    List<String> classPath =
+        Splitter.on(File.pathSeparatorChar).omitEmptyStrings().splitToList(args[0]);
+    Problems problems = new Problems();
+    ImmutableList<FileInfo> sources =
+        FrontendUtils.getAllSources(Arrays.asList(args).subList(1, args.length), problems)
+            .filter(f -> f.sourcePath().endsWith(".java"))
+            .collect(toImmutableList());
+    problems.abortIfHasErrors();
+
+    CompilationUnitsAndTypeBindings jdtUnits =
+        new JdtParser(classPath, problems).parseFiles(sources, false);
+    problems.abortIfHasErrors();
+    PackageInfoCache.init(classPath, problems);
+    List<MethodDescriptor> methodDescriptors = new ArrayList<>();
+    for (CompilationUnit unit : CompilationUnitBuilder.build(jdtUnits)) {
+      for (Type type : unit.getTypes()) {
+        for (Method method : type.getMethods()) {
+          methodDescriptors.add(method.getDescriptor());
+        }
+      }
+    }
+    System.out.printf("Requesting the names of %d methods%n", methodDescriptors.size());
+
+    for (int round = 0; round < ROUNDS; round++) {
+      long allocatedBytes = getCurrentThreadAllocatedBytes();
+      int length = 0;
+      for (int i = 0; i < REQUESTS_PER_ROUND; i++) {
+        for (MethodDescriptor methodDescriptor : methodDescriptors) {
+          length += methodDescriptor.getMethodSignature().length();
+          length += ManglingNameUtils.getMangledName(methodDescriptor).length();
+        }
+      }
+      allocatedBytes = getCurrentThreadAllocatedBytes() - allocatedBytes;
+      System.out.printf(
+          "round %d: %,.1f bytes allocated per method (%d chars)%n",
+          round, (double) allocatedBytes / methodDescriptors.size(), length);
+    }
+    System.out.printf("%d symbols interned%n", SymbolTable.get().size());
+  }
+
+  private static long getCurrentThreadAllocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private MethodNameAllocationBenchmark() {}
+}
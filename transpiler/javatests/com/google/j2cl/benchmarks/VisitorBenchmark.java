@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.benchmarks;
+
+import com.google.j2cl.ast.AbstractContextFreeRewriter;
+import com.google.j2cl.ast.AbstractContextFreeVisitor;
+import com.google.j2cl.ast.AbstractRewriter;
+import com.google.j2cl.ast.AbstractVisitor;
+import com.google.j2cl.ast.BinaryExpression;
+import com.google.j2cl.ast.BinaryOperator;
+import com.google.j2cl.ast.Block;
+import com.google.j2cl.ast.Expression;
+import com.google.j2cl.ast.NumberLiteral;
+import com.google.j2cl.ast.Statement;
+import com.google.j2cl.common.FilePosition;
+import com.google.j2cl.common.SourcePosition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the traversal throughput of the regular visitors and rewriters with their context-free
+ * variants.
+ *
+ * <p>The AST is a block with many statements, each of them a balanced tree of multiplications. The
+ * rewriters leave the AST unchanged so that the same AST can be used by all the iterations.
+ *
+ * <p>Usage: {@code VisitorBenchmark [jmh options]}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VisitorBenchmark {
+
+  @Param({"1000", "10000"})
+  public int statementCount;
+
+  @Param({"6"})
+  public int expressionDepth;
+
+  private Block block;
+
+  @Setup
+  public void setUp() {
+    FilePosition filePosition =
+        FilePosition.newBuilder().setLine(0).setColumn(0).setByteOffset(0).build();
+    SourcePosition sourcePosition =
+        SourcePosition.newBuilder()
+            .setStartFilePosition(filePosition)
+            .setEndFilePosition(filePosition)
+            .build();
+    List<Statement> statements = new ArrayList<>();
+    for (int i = 0; i < statementCount; i++) {
+      statements.add(createExpression(expressionDepth).makeStatement(sourcePosition));
+    }
+    block = Block.newBuilder().setStatements(statements).setSourcePosition(sourcePosition).build();
+  }
+
+  private static Expression createExpression(int depth) {
+    if (depth == 0) {
+      return NumberLiteral.fromInt(1);
+    }
+    return BinaryExpression.newBuilder()
+        .setLeftOperand(createExpression(depth - 1))
+        .setOperator(BinaryOperator.TIMES)
+        .setRightOperand(createExpression(depth - 1))
+        .build();
+  }
+
+  @Benchmark
+  public int visitor() {
+    int[] count = new int[1];
+    block.accept(
+        new AbstractVisitor() {
+          @Override
+          public void exitNumberLiteral(NumberLiteral numberLiteral) {
+            count[0]++;
+          }
+        });
+    return count[0];
+  }
+
+  @Benchmark
+  public int contextFreeVisitor() {
+    int[] count = new int[1];
+    block.accept(
+        new AbstractContextFreeVisitor() {
+          @Override
+          public void exitNumberLiteral(NumberLiteral numberLiteral) {
+            count[0]++;
+          }
+        });
+    return count[0];
+  }
+
+  @Benchmark
+  public Object rewriter() {
+    return block.accept(
+        new AbstractRewriter() {
+          @Override
+          public Expression rewriteNumberLiteral(NumberLiteral numberLiteral) {
+            return numberLiteral;
+          }
+        });
+  }
+
+  @Benchmark
+  public Object contextFreeRewriter() {
+    return block.accept(
+        new AbstractContextFreeRewriter() {
+          @Override
+          public Expression rewriteNumberLiteral(NumberLiteral numberLiteral) {
+            return numberLiteral;
+          }
+        });
+  }
+}
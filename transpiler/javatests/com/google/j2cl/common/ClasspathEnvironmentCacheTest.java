@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ClasspathEnvironmentCacheTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testRetain_reusesUnchangedJars() throws IOException {
+    Path jar = createJar("a.jar", "Foo.class");
+    ClasspathEnvironmentCache cache = ClasspathEnvironmentCache.create(10);
+
+    cache.retain(ImmutableList.of(jar.toString()));
+    cache.retain(ImmutableList.of(jar.toString()));
+
+    assertThat(cache.getMissCount()).isEqualTo(1);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getSize()).isEqualTo(1);
+    cache.clear();
+  }
+
+  @Test
+  public void testRetain_reopensChangedJars() throws IOException {
+    Path jar = createJar("a.jar", "Foo.class");
+    ClasspathEnvironmentCache cache = ClasspathEnvironmentCache.create(10);
+
+    cache.retain(ImmutableList.of(jar.toString()));
+    createJar("a.jar", "Foo.class", "Bar.class");
+    Files.setLastModifiedTime(jar, FileTime.fromMillis(0));
+    cache.retain(ImmutableList.of(jar.toString()));
+
+    assertThat(cache.getMissCount()).isEqualTo(2);
+    assertThat(cache.getHitCount()).isEqualTo(0);
+    assertThat(cache.getSize()).isEqualTo(1);
+    cache.clear();
+  }
+
+  @Test
+  public void testRetain_evictsLeastRecentlyUsedJars() throws IOException {
+    Path first = createJar("a.jar", "Foo.class");
+    Path second = createJar("b.jar", "Bar.class");
+    ClasspathEnvironmentCache cache = ClasspathEnvironmentCache.create(1);
+
+    cache.retain(ImmutableList.of(first.toString()));
+    cache.retain(ImmutableList.of(second.toString()));
+    cache.retain(ImmutableList.of(second.toString()));
+
+    assertThat(cache.getSize()).isEqualTo(1);
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    cache.clear();
+  }
+
+  @Test
+  public void testRetain_ignoresDirectoriesAndMissingEntries() throws IOException {
+    ClasspathEnvironmentCache cache = ClasspathEnvironmentCache.create(10);
+
+    cache.retain(
+        ImmutableList.of(
+            temporaryFolder.getRoot().toString(),
+            temporaryFolder.getRoot().toPath().resolve("missing.jar").toString()));
+
+    assertThat(cache.getSize()).isEqualTo(0);
+    assertThat(cache.getMissCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testDisabled_retainsNothing() throws IOException {
+    Path jar = createJar("a.jar", "Foo.class");
+    ClasspathEnvironmentCache cache = ClasspathEnvironmentCache.disabled();
+
+    cache.retain(ImmutableList.of(jar.toString()));
+
+    assertThat(cache.getSize()).isEqualTo(0);
+  }
+
+  private Path createJar(String name, String... entryNames) throws IOException {
+    Path jar = temporaryFolder.getRoot().toPath().resolve(name);
+    try (OutputStream outputStream = Files.newOutputStream(jar);
+        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+      for (String entryName : entryNames) {
+        zipOutputStream.putNextEntry(new ZipEntry(entryName));
+        zipOutputStream.write(entryName.getBytes());
+        zipOutputStream.closeEntry();
+      }
+    }
+    return jar;
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ConcurrentInternerTest {
+
+  @Test
+  public void testIntern_returnsCanonicalInstance() {
+    ConcurrentInterner<String> interner = new ConcurrentInterner<>("String");
+    String first = new String("foo");
+    String second = new String("foo");
+
+    new CompilationContext()
+        .run(
+            () -> {
+              assertThat(interner.intern(first)).isSameInstanceAs(first);
+              assertThat(interner.intern(second)).isSameInstanceAs(first);
+              assertThat(interner.intern("bar")).isEqualTo("bar");
+
+              assertThat(interner.getHitCount()).isEqualTo(1);
+              assertThat(interner.getMissCount()).isEqualTo(2);
+              assertThat(interner.getSize()).isEqualTo(2);
+            });
+  }
+
+  @Test
+  public void testIntern_isolatesCompilations() {
+    ConcurrentInterner<String> interner = new ConcurrentInterner<>("String");
+    String first = new String("foo");
+    String second = new String("foo");
+
+    new CompilationContext().run(() -> interner.intern(first));
+    new CompilationContext()
+        .run(
+            () -> {
+              assertThat(interner.intern(second)).isSameInstanceAs(second);
+              assertThat(interner.getSize()).isEqualTo(1);
+            });
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class FileDigestsTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testGetDigest_hashesTheContent() throws IOException {
+    Path file = writeFile("A.java", "class A {}");
+
+    assertThat(getDigest(ImmutableMap.of(), file)).isEqualTo(sha256("class A {}"));
+  }
+
+  @Test
+  public void testGetDigest_rehashesModifiedFiles() throws IOException {
+    Path file = writeFile("A.java", "class A {}");
+    getDigest(ImmutableMap.of(), file);
+
+    writeFile("A.java", "class A { int a; }");
+
+    assertThat(getDigest(ImmutableMap.of(), file)).isEqualTo(sha256("class A { int a; }"));
+  }
+
+  @Test
+  public void testGetDigest_usesTheKnownDigest() throws IOException {
+    Path file = writeFile("A.java", "class A {}");
+
+    assertThat(getDigest(ImmutableMap.of(file, "0123abcd"), file)).isEqualTo("0123abcd");
+    // Known digests only apply to the compilation they were given to.
+    assertThat(getDigest(ImmutableMap.of(), file)).isEqualTo(sha256("class A {}"));
+  }
+
+  private Path writeFile(String name, String content) throws IOException {
+    Path file = temporaryFolder.getRoot().toPath().resolve(name);
+    Files.write(file, content.getBytes(UTF_8));
+    return file;
+  }
+
+  private static String getDigest(Map<Path, String> knownDigests, Path path) {
+    return new CompilationContext()
+        .call(
+            () -> {
+              FileDigests.useKnownDigests(knownDigests);
+              try {
+                return FileDigests.getDigest(path);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+  }
+
+  private static String sha256(String content) {
+    return Hashing.sha256().hashString(content, UTF_8).toString();
+  }
+}
@@ -16,7 +16,9 @@
 package com.google.j2cl.common;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.j2cl.common.FrontendUtils.FileInfo;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -57,4 +59,22 @@ public final class FrontendUtilsTest {
       assertThat(FrontendUtils.getJavaPath(JAVA_PATHS_BAD[i])).isEqualTo(JAVA_PATHS_BAD[i]);
     }
   }
+
+  @Test
+  public void testMightMentionGwtIncompatible() {
+    assertThat(
+            FileInfo.createInMemory(
+                    "a.srcjar!/Foo.java",
+                    "Foo.java",
+                    "class Foo { @GwtIncompatible void m() {} }".getBytes(UTF_8))
+                .mightMentionGwtIncompatible())
+        .isTrue();
+    assertThat(
+            FileInfo.createInMemory(
+                    "a.srcjar!/Foo.java", "Foo.java", "class Foo {}".getBytes(UTF_8))
+                .mightMentionGwtIncompatible())
+        .isFalse();
+    // Files on disk are not read up front.
+    assertThat(FileInfo.create("Foo.java", "Foo.java").mightMentionGwtIncompatible()).isTrue();
+  }
 }
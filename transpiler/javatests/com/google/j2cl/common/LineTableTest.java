@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class LineTableTest {
+
+  @Test
+  public void testPack_recoversTheByteOffsetFromTheLineStart() {
+    LineTable lineTable = LineTable.create();
+
+    long first = assertRoundTrips(lineTable, 3, 4, 40);
+    long second = assertRoundTrips(lineTable, 3, 10, 46);
+
+    assertThat(first).isAtLeast(0L);
+    assertThat(second).isAtLeast(0L);
+  }
+
+  @Test
+  public void testPack_signExtendsNegativeCorrections() {
+    LineTable lineTable = LineTable.create();
+    assertRoundTrips(lineTable, 3, 4, 40);
+
+    // Offsets that are inconsistent with the start of the line, in both directions, still pack.
+    assertThat(assertRoundTrips(lineTable, 3, 10, 44)).isAtLeast(0L);
+    assertThat(assertRoundTrips(lineTable, 3, 10, 51)).isAtLeast(0L);
+    assertThat(assertRoundTrips(lineTable, 3, 0, 36 - 16383)).isAtLeast(0L);
+    assertThat(assertRoundTrips(lineTable, 3, 0, 36 + 16383)).isAtLeast(0L);
+  }
+
+  @Test
+  public void testPack_keepsLargeCorrectionsUnpacked() {
+    LineTable lineTable = LineTable.create();
+    assertRoundTrips(lineTable, 3, 4, 40);
+
+    assertThat(assertRoundTrips(lineTable, 3, 0, 36 - 16384)).isLessThan(0L);
+    assertThat(assertRoundTrips(lineTable, 3, 0, 36 + 16384)).isLessThan(0L);
+  }
+
+  @Test
+  public void testPack_keepsOverflowingLinesAndColumnsUnpacked() {
+    LineTable lineTable = LineTable.create();
+
+    assertThat(assertRoundTrips(lineTable, 1 << 24, 4, 40)).isLessThan(0L);
+    assertThat(assertRoundTrips(lineTable, 3, 1 << 24, (1 << 24) + 36)).isLessThan(0L);
+    assertThat(assertRoundTrips(lineTable, Integer.MAX_VALUE, 0, 0)).isLessThan(0L);
+    // Unpacked positions do not disturb the packed ones.
+    assertThat(assertRoundTrips(lineTable, 3, 4, 40)).isAtLeast(0L);
+  }
+
+  @Test
+  public void testPack_handlesLinesInAnyOrder() {
+    LineTable lineTable = LineTable.create();
+
+    assertRoundTrips(lineTable, 10, 2, 200);
+    assertRoundTrips(lineTable, 2, 0, 20);
+    assertRoundTrips(lineTable, 0, 5, 5);
+    assertRoundTrips(lineTable, 10, 7, 205);
+    assertRoundTrips(lineTable, 40, 1, 801);
+    assertRoundTrips(lineTable, 2, 3, 23);
+  }
+
+  @Test
+  public void testPack_keepsNegativeLinesAndColumnsUnpacked() {
+    LineTable lineTable = LineTable.create();
+
+    // Positions that are unknown are reported with negative values.
+    assertThat(assertRoundTrips(lineTable, -1, -1, -1)).isLessThan(0L);
+    assertThat(assertRoundTrips(lineTable, -1, 4, 40)).isLessThan(0L);
+    assertThat(assertRoundTrips(lineTable, 3, -1, 40)).isLessThan(0L);
+  }
+
+  @Test
+  public void testSourcePosition_roundTripsFilePositions() {
+    new CompilationContext()
+        .run(
+            () -> {
+              FilePosition start =
+                  FilePosition.newBuilder().setLine(3).setColumn(4).setByteOffset(40).build();
+              FilePosition end =
+                  FilePosition.newBuilder().setLine(1 << 24).setColumn(2).setByteOffset(9).build();
+              SourcePosition sourcePosition =
+                  SourcePosition.newBuilder()
+                      .setFilePath("a/A.java")
+                      .setName("foo")
+                      .setStartFilePosition(start)
+                      .setEndFilePosition(end)
+                      .build();
+
+              assertThat(sourcePosition.getStartFilePosition()).isEqualTo(start);
+              assertThat(sourcePosition.getEndFilePosition()).isEqualTo(end);
+              assertThat(sourcePosition.getFilePath()).isEqualTo("a/A.java");
+              assertThat(sourcePosition.getName()).isEqualTo("foo");
+
+              SourcePosition copy = SourcePosition.Builder.from(sourcePosition).build();
+              assertThat(copy).isEqualTo(sourcePosition);
+              assertThat(copy.getStartFilePosition()).isEqualTo(start);
+              assertThat(copy.getEndFilePosition()).isEqualTo(end);
+            });
+  }
+
+  /** Packs a position, checks that it unpacks to the same values and returns it. */
+  private static long assertRoundTrips(LineTable lineTable, int line, int column, int byteOffset) {
+    long packedPosition = lineTable.pack(line, column, byteOffset);
+
+    assertThat(lineTable.getLine(packedPosition)).isEqualTo(line);
+    assertThat(lineTable.getColumn(packedPosition)).isEqualTo(column);
+    assertThat(lineTable.getByteOffset(packedPosition)).isEqualTo(byteOffset);
+    assertThat(lineTable.toFilePosition(packedPosition))
+        .isEqualTo(
+            FilePosition.newBuilder()
+                .setLine(line)
+                .setColumn(column)
+                .setByteOffset(byteOffset)
+                .build());
+    return packedPosition;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class OutputTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testZip_writesSortedEntries() throws IOException {
+    Path zip = temporaryFolder.getRoot().toPath().resolve("out/output.zip");
+    Output output = Output.toZip(zip, Output.Compression.DEFLATED, new Problems());
+
+    output.write("b/B.js", "goog.module('b.B');");
+    output.write("a/A.js", "goog.module('a.A');");
+    output.write("a/A.js.map", new byte[0]);
+    output.close();
+
+    try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+      List<String> names = new ArrayList<>();
+      zipFile.stream().forEach(entry -> names.add(entry.getName()));
+      assertThat(names).containsExactly("a/A.js", "a/A.js.map", "b/B.js").inOrder();
+      assertThat(readEntry(zipFile, "b/B.js"))
+          .isEqualTo("goog.module('b.B');" + System.lineSeparator());
+      assertThat(readEntry(zipFile, "a/A.js.map")).isEmpty();
+    }
+  }
+
+  @Test
+  public void testZip_storedEntriesAreNotCompressed() throws IOException {
+    Path zip = temporaryFolder.getRoot().toPath().resolve("output.zip");
+    Output output = Output.toZip(zip, Output.Compression.STORED, new Problems());
+
+    String content = String.join("", Collections.nCopies(100, "compressible "));
+    output.write("A.java", content);
+    output.close();
+
+    try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+      ZipEntry entry = zipFile.getEntry("A.java");
+      assertThat(entry.getMethod()).isEqualTo(ZipEntry.STORED);
+      assertThat(readEntry(zipFile, "A.java")).isEqualTo(content + System.lineSeparator());
+    }
+  }
+
+  @Test
+  public void testZip_isIndependentOfTheWriteOrder() throws IOException {
+    Path first = temporaryFolder.getRoot().toPath().resolve("first.zip");
+    Path second = temporaryFolder.getRoot().toPath().resolve("second.zip");
+    ImmutableList<String> paths = ImmutableList.of("c/C.js", "a/A.js", "b/B.js");
+
+    Output output = Output.toZip(first, Output.Compression.DEFLATED, new Problems());
+    paths.forEach(path -> output.write(path, path));
+    output.close();
+    Output reversedOutput = Output.toZip(second, Output.Compression.DEFLATED, new Problems());
+    paths.reverse().forEach(path -> reversedOutput.write(path, path));
+    reversedOutput.close();
+
+    assertThat(Files.readAllBytes(first)).isEqualTo(Files.readAllBytes(second));
+  }
+
+  @Test
+  public void testDirectory_writesFiles() throws IOException {
+    Path directory = temporaryFolder.getRoot().toPath();
+    Output output = Output.toDirectory(directory, new Problems());
+
+    output.write("a/A.js", "goog.module('a.A');");
+    output.close();
+
+    assertThat(new String(Files.readAllBytes(directory.resolve("a/A.js")), StandardCharsets.UTF_8))
+        .isEqualTo("goog.module('a.A');" + System.lineSeparator());
+  }
+
+  private static String readEntry(ZipFile zipFile, String name) throws IOException {
+    return new String(
+        ByteStreams.toByteArray(zipFile.getInputStream(zipFile.getEntry(name))),
+        StandardCharsets.UTF_8);
+  }
+}
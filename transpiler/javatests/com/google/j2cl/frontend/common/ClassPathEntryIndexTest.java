@@ -0,0 +1,267 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.frontend.common;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.j2cl.common.CompilationContext;
+import com.google.j2cl.common.Problems;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nullable;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import jsinterop.annotations.JsPackage;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ClassPathEntryIndexTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path sourceRoot;
+
+  @Before
+  public void setUp() throws IOException {
+    sourceRoot = temporaryFolder.newFolder("src").toPath();
+    // An annotation whose element values exercise all the kinds of values that have to be skipped
+    // when looking for the JsPackage annotation, including long and double constants which take
+    // two entries of the constant pool. It is retained at runtime so that it precedes JsPackage in
+    // the same annotations attribute.
+    writeSource(
+        "annotations/Meta.java",
+        "package annotations;",
+        "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)",
+        "public @interface Meta {",
+        "  long longValue();",
+        "  double doubleValue();",
+        "  String namespace();",
+        "  Class<?> type();",
+        "  java.lang.annotation.RetentionPolicy policy();",
+        "  int[] intValues();",
+        "  Nested nested();",
+        "  Nested[] nestedValues();",
+        "}");
+    writeSource(
+        "annotations/Nested.java",
+        "package annotations;",
+        "public @interface Nested {",
+        "  long[] longValues();",
+        "  String name() default \"\";",
+        "}");
+  }
+
+  @Test
+  public void testGetPackageReport_readsJsPackageNamespace() throws IOException {
+    writePackage("withnamespace", "my.namespace");
+    Path classes = compile();
+
+    for (Path entry : ImmutableList.of(classes, createJar(classes))) {
+      ClassPathEntryIndex index = createIndex(entry);
+
+      assertWithMessage(entry.toString())
+          .that(index.getPackageReport("withnamespace").getJsNamespace())
+          .isEqualTo("my.namespace");
+    }
+  }
+
+  @Test
+  public void testGetPackageReport_readsGlobalNamespace() throws IOException {
+    writePackage("global", JsPackage.GLOBAL);
+    Path classes = compile();
+
+    for (Path entry : ImmutableList.of(classes, createJar(classes))) {
+      ClassPathEntryIndex index = createIndex(entry);
+
+      assertWithMessage(entry.toString())
+          .that(index.getPackageReport("global").getJsNamespace())
+          .isEqualTo(JsPackage.GLOBAL);
+    }
+  }
+
+  @Test
+  public void testGetPackageReport_withoutJsPackage() throws IOException {
+    writePackage("withoutnamespace", null);
+    writeSource("nopackageinfo/Foo.java", "package nopackageinfo;", "public class Foo {}");
+    Path classes = compile();
+
+    for (Path entry : ImmutableList.of(classes, createJar(classes))) {
+      ClassPathEntryIndex index = createIndex(entry);
+
+      // The namespace element of the other annotation is not mistaken for the JsPackage one.
+      assertWithMessage(entry.toString())
+          .that(index.getPackageReport("withoutnamespace").getJsNamespace())
+          .isNull();
+      assertWithMessage(entry.toString()).that(index.getPackageReport("nopackageinfo")).isNull();
+    }
+  }
+
+  @Test
+  public void testContainsType() throws IOException {
+    writePackage("withnamespace", "my.namespace");
+    Path classes = compile();
+
+    for (Path entry : ImmutableList.of(classes, createJar(classes))) {
+      ClassPathEntryIndex index = createIndex(entry);
+
+      assertWithMessage(entry.toString()).that(index.containsType("withnamespace.Foo")).isTrue();
+      assertWithMessage(entry.toString())
+          .that(index.containsType("withnamespace.Foo$Inner"))
+          .isTrue();
+      assertWithMessage(entry.toString()).that(index.containsType("withnamespace.Bar")).isFalse();
+    }
+  }
+
+  @Test
+  public void testGetJsNamespace_resolvesTheFirstEntryThatHasTheType() throws IOException {
+    writePackage("withnamespace", "from.directory");
+    Path directory = compile();
+    writePackage("withnamespace", "from.jar");
+    Path jar = createJar(compile());
+
+    assertThat(getJsNamespace("withnamespace.Foo", directory, jar)).isEqualTo("from.directory");
+    assertThat(getJsNamespace("withnamespace.Foo", jar, directory)).isEqualTo("from.jar");
+    // Types that are not in the class path, or belong to the platform, have no namespace.
+    assertThat(getJsNamespace("withnamespace.Bar", directory, jar)).isNull();
+    assertThat(getJsNamespace("java.lang.Object", directory, jar)).isNull();
+  }
+
+  private static String getJsNamespace(String typeName, Path... classPathEntries) {
+    List<String> classPath =
+        Stream.of(classPathEntries).map(Path::toString).collect(Collectors.toList());
+    return new CompilationContext()
+        .call(
+            () -> {
+              Problems problems = new Problems();
+              PackageInfoCache.init(classPath, problems);
+              String jsNamespace = PackageInfoCache.get().getJsNamespace(typeName);
+              assertThat(problems.hasErrors()).isFalse();
+              return jsNamespace;
+            });
+  }
+
+  private static ClassPathEntryIndex createIndex(Path entry) throws IOException {
+    Problems problems = new Problems();
+    ClassPathEntryIndex index = ClassPathEntryIndex.create(entry, problems);
+    assertThat(problems.hasErrors()).isFalse();
+    return index;
+  }
+
+  /**
+   * Writes a package-info for {@code packageName}, annotated with a {@code JsPackage} annotation if
+   * {@code namespace} is not null, and a class in the package.
+   */
+  private void writePackage(String packageName, @Nullable String namespace) throws IOException {
+    String jsPackageAnnotation =
+        namespace == null
+            ? ""
+            : "@jsinterop.annotations.JsPackage(namespace = \"" + namespace + "\")";
+    writeSource(
+        packageName + "/package-info.java",
+        "@annotations.Meta(",
+        "    longValue = 1234567890123L,",
+        "    doubleValue = 2.5,",
+        "    namespace = \"not.a.namespace\",",
+        "    type = Object.class,",
+        "    policy = java.lang.annotation.RetentionPolicy.CLASS,",
+        "    intValues = {1, 2, 3},",
+        "    nested = @annotations.Nested(longValues = {1L, 2L}, name = \"nested\"),",
+        "    nestedValues = {",
+        "      @annotations.Nested(longValues = 3L),",
+        "      @annotations.Nested(longValues = {})",
+        "    })",
+        jsPackageAnnotation,
+        "package " + packageName + ";");
+    writeSource(
+        packageName + "/Foo.java",
+        "package " + packageName + ";",
+        "public class Foo {",
+        "  public static final long LONG_CONSTANT = 1234567890123L;",
+        "  public static final double DOUBLE_CONSTANT = 2.5;",
+        "  public static class Inner {}",
+        "}");
+  }
+
+  private void writeSource(String path, String... lines) throws IOException {
+    Path file = sourceRoot.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.write(file, ImmutableList.copyOf(lines), UTF_8);
+  }
+
+  /** Compiles the sources written so far into a new class directory. */
+  private Path compile() throws IOException {
+    Path classes = temporaryFolder.newFolder().toPath();
+    List<String> arguments;
+    try (Stream<Path> paths = Files.walk(sourceRoot)) {
+      arguments =
+          Stream.concat(
+                  Stream.of(
+                      "-d",
+                      classes.toString(),
+                      "-classpath",
+                      getClassPathEntry(JsPackage.class).toString()),
+                  paths.filter(p -> p.toString().endsWith(".java")).map(Path::toString))
+              .collect(Collectors.toList());
+    }
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    assertThat(compiler.run(null, null, null, arguments.toArray(new String[0]))).isEqualTo(0);
+    return classes;
+  }
+
+  /** Creates a jar with the contents of {@code classes}. */
+  private Path createJar(Path classes) throws IOException {
+    Path jar = temporaryFolder.newFile().toPath();
+    try (OutputStream outputStream = Files.newOutputStream(jar);
+        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        Stream<Path> paths = Files.walk(classes)) {
+      for (Path path : (Iterable<Path>) paths::iterator) {
+        if (!Files.isRegularFile(path)) {
+          continue;
+        }
+        zipOutputStream.putNextEntry(
+            new ZipEntry(classes.relativize(path).toString().replace('\\', '/')));
+        zipOutputStream.write(Files.readAllBytes(path));
+        zipOutputStream.closeEntry();
+      }
+    }
+    return jar;
+  }
+
+  private static Path getClassPathEntry(Class<?> clazz) {
+    try {
+      return Paths.get(clazz.getProtectionDomain().getCodeSource().getLocation().toURI());
+    } catch (URISyntaxException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
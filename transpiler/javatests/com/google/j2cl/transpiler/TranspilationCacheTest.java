@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.transpiler;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.j2cl.generator.CompilationUnitOutputs;
+import java.util.Optional;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class TranspilationCacheTest {
+
+  @Test
+  public void testGet_returnsTheOutputsPutForTheKey() {
+    TranspilationCache cache = new TranspilationCache(1000);
+    CompilationUnitOutputs outputs = createOutputs(10);
+
+    cache.put("key", outputs);
+
+    assertThat(cache.get("key")).isSameInstanceAs(outputs);
+    assertThat(cache.get("otherKey")).isNull();
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testPut_replacesTheOutputsOfTheKey() {
+    TranspilationCache cache = new TranspilationCache(1000);
+    CompilationUnitOutputs outputs = createOutputs(20);
+
+    cache.put("key", createOutputs(10));
+    cache.put("key", outputs);
+
+    assertThat(cache.get("key")).isSameInstanceAs(outputs);
+    assertThat(cache.getSizeInBytes()).isEqualTo(outputs.getSizeInBytes());
+  }
+
+  @Test
+  public void testPut_evictsTheLeastRecentlyUsedOutputs() {
+    CompilationUnitOutputs first = createOutputs(40);
+    CompilationUnitOutputs second = createOutputs(40);
+    CompilationUnitOutputs third = createOutputs(40);
+    TranspilationCache cache =
+        new TranspilationCache(first.getSizeInBytes() + second.getSizeInBytes());
+
+    cache.put("first", first);
+    cache.put("second", second);
+    // Using the first outputs makes the second ones the least recently used.
+    cache.get("first");
+    cache.put("third", third);
+
+    assertThat(cache.get("first")).isSameInstanceAs(first);
+    assertThat(cache.get("second")).isNull();
+    assertThat(cache.get("third")).isSameInstanceAs(third);
+    assertThat(cache.getSizeInBytes())
+        .isEqualTo(first.getSizeInBytes() + third.getSizeInBytes());
+  }
+
+  @Test
+  public void testPut_ignoresOutputsLargerThanTheCache() {
+    CompilationUnitOutputs outputs = createOutputs(10);
+    TranspilationCache cache = new TranspilationCache(outputs.getSizeInBytes());
+
+    cache.put("key", outputs);
+    cache.put("largeKey", createOutputs(100));
+
+    assertThat(cache.get("key")).isSameInstanceAs(outputs);
+    assertThat(cache.get("largeKey")).isNull();
+    assertThat(cache.getSizeInBytes()).isEqualTo(outputs.getSizeInBytes());
+  }
+
+  private static CompilationUnitOutputs createOutputs(int sizeInBytes) {
+    return new CompilationUnitOutputs(
+        ImmutableMap.of("a/A.js", new byte[sizeInBytes]), ImmutableList.of(), Optional.empty());
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.transpiler.integration;
+
+import static com.google.j2cl.transpiler.integration.TranspilerTester.newTesterWithDefaults;
+
+import junit.framework.TestCase;
+
+/**
+ * Test that runs many transpilations in the same process, like a persistent worker does, and checks
+ * that no state of previous transpilations is retained.
+ */
+public class FlatHeapAcrossTranspilationsTest extends TestCase {
+
+  private static final int WARM_UP_TRANSPILATIONS = 5;
+  private static final int TRANSPILATIONS = 40;
+
+  /**
+   * The growth that is tolerated after the warm up. Retaining the JDT bindings of each
+   * transpilation would grow the heap by several megabytes per transpilation.
+   */
+  private static final long MAX_HEAP_GROWTH_BYTES = 16L * 1024 * 1024;
+
+  public void testHeapStaysFlat() {
+    for (int i = 0; i < WARM_UP_TRANSPILATIONS; i++) {
+      transpile();
+    }
+    long heapAfterWarmUp = getUsedHeapAfterGc();
+
+    for (int i = 0; i < TRANSPILATIONS; i++) {
+      transpile();
+    }
+    long heapAfterTranspilations = getUsedHeapAfterGc();
+
+    long growth = heapAfterTranspilations - heapAfterWarmUp;
+    assertTrue(
+        String.format("Heap grew by %d bytes over %d transpilations", growth, TRANSPILATIONS),
+        growth < MAX_HEAP_GROWTH_BYTES);
+  }
+
+  private static void transpile() {
+    newTesterWithDefaults()
+        .addCompilationUnit(
+            "Main",
+            "import java.util.ArrayList;",
+            "import java.util.HashMap;",
+            "import java.util.List;",
+            "import java.util.Map;",
+            "public class Main {",
+            "  public static Map<String, List<Integer>> group(List<String> values) {",
+            "    Map<String, List<Integer>> groups = new HashMap<>();",
+            "    for (String value : values) {",
+            "      groups.computeIfAbsent(value, k -> new ArrayList<>()).add(value.length());",
+            "    }",
+            "    return groups;",
+            "  }",
+            "}")
+        .assertTranspileSucceeds();
+  }
+
+  private static long getUsedHeapAfterGc() {
+    Runtime runtime = Runtime.getRuntime();
+    // Requesting a gc is only a hint, repeat it so that the heap settles.
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.j2cl.transpiler.integration;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.j2cl.transpiler.integration.TranspilerTester.newTesterWithDefaults;
+
+import com.google.common.collect.ImmutableList;
+import com.google.j2cl.transpiler.integration.TranspilerTester.TranspileResult;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+import junit.framework.TestCase;
+
+/** Test that fusing normalization passes does not change the output of the transpiler. */
+public class FusedPassesIntegrationTest extends TestCase {
+
+  private static final String READABLE_PATH =
+      "transpiler/javatests/com/google/j2cl/transpiler/readable/";
+  private static final String INTEGRATION_PATH =
+      "transpiler/javatests/com/google/j2cl/transpiler/integration/";
+  private static final String ASSERTS_PATH =
+      "transpiler/javatests/com/google/j2cl/transpiler/utils/Asserts.java";
+
+  public void testReadableExamples() throws Exception {
+    for (String example :
+        ImmutableList.of(
+            "arithmeticexpressions",
+            "booleanoperations",
+            "cast",
+            "equality",
+            "instanceofexpression",
+            "simplelongs")) {
+      List<String> sources = getSources(READABLE_PATH + example);
+      transpile(sources, false).assertOutputFilesAreSame(transpile(sources, true));
+    }
+  }
+
+  public void testIntegrationTests() throws Exception {
+    for (String test :
+        ImmutableList.of(
+            "alllongoperations",
+            "binaryexpressions",
+            "instanceofs",
+            "strictequality",
+            "unaryexpressions")) {
+      List<String> sources =
+          ImmutableList.<String>builder()
+              .addAll(getSources(INTEGRATION_PATH + test))
+              .add(ASSERTS_PATH)
+              .build();
+      transpile(sources, false).assertOutputFilesAreSame(transpile(sources, true));
+    }
+  }
+
+  public void testJre() throws Exception {
+    compileJre(false).assertOutputFilesAreSame(compileJre(true));
+  }
+
+  private static TranspileResult transpile(List<String> sources, boolean fusePasses) {
+    TranspilerTester tester = newTesterWithDefaults();
+    sources.forEach(tester::addSourcePath);
+    return transpile(tester, fusePasses);
+  }
+
+  private static TranspileResult compileJre(boolean fusePasses) {
+    return transpile(
+        newTesterWithDefaults()
+            .setNativeSourcePath(INTEGRATION_PATH + "libjre_native.jar")
+            .addSourcePath(INTEGRATION_PATH + "jre_bundle_deploy-src.jar"),
+        fusePasses);
+  }
+
+  private static TranspileResult transpile(TranspilerTester tester, boolean fusePasses) {
+    if (fusePasses) {
+      tester.addArgs("-fusepasses");
+    }
+    return tester.assertTranspileSucceeds();
+  }
+
+  private static List<String> getSources(String directory) throws IOException {
+    try (Stream<Path> paths = Files.list(Paths.get(directory))) {
+      return paths
+          .map(Path::toString)
+          .filter(path -> path.endsWith(".java"))
+          .sorted()
+          .collect(toImmutableList());
+    }
+  }
+}
@@ -73,6 +73,13 @@ def integration_test(
         js_suppress = suppress,
     )
 
+    # Exposes the sources to the tests that compare the output of different transpiler modes.
+    native.filegroup(
+        name = name + "_srcs",
+        srcs = srcs,
+        visibility = ["//transpiler/javatests/com/google/j2cl/transpiler/integration:__pkg__"],
+    )
+
     # blaze test :uncompiled_test
     # blaze test :compiled_test
 
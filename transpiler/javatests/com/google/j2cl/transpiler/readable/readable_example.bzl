@@ -52,6 +52,13 @@ def readable_example(
         readable_library_info = generate_library_info,
     )
 
+    # Exposes the sources to the tests that compare the output of different transpiler modes.
+    native.filegroup(
+        name = "readable_srcs",
+        srcs = srcs,
+        visibility = ["//transpiler/javatests/com/google/j2cl/transpiler/integration:__pkg__"],
+    )
+
     if generate_library_info:
         # Used by replace_all.py script to know wheter the generated output libraryinfo.json has to
         # be copied or deleted